@@ -12,6 +12,12 @@ import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Test
 public class ExNodeImporter extends ApiExampleBase {
     @Test(dataProvider = "keepSourceNumberingDataProvider")
@@ -109,12 +115,18 @@ public class ExNodeImporter extends ApiExampleBase {
     /// Inserts the contents of a document after the specified node.
     /// </summary>
     static void insertDocument(Node insertionDestination, Document docToInsert) {
+        insertDocument(insertionDestination, docToInsert,
+                new NodeImporter(docToInsert, insertionDestination.getDocument(), ImportFormatMode.KEEP_SOURCE_FORMATTING));
+    }
+
+    /// <summary>
+    /// Inserts the contents of a document after the specified node, using an importer created for the document
+    /// and the destination. Reusing the importer keeps the styles and lists it has already imported.
+    /// </summary>
+    static void insertDocument(Node insertionDestination, Document docToInsert, NodeImporter importer) {
         if (((insertionDestination.getNodeType()) == (NodeType.PARAGRAPH)) || ((insertionDestination.getNodeType()) == (NodeType.TABLE))) {
             CompositeNode destinationParent = insertionDestination.getParentNode();
 
-            NodeImporter importer =
-                    new NodeImporter(docToInsert, insertionDestination.getDocument(), ImportFormatMode.KEEP_SOURCE_FORMATTING);
-
             // Loop through all block-level nodes in the section's body,
             // then clone and insert every node that is not the last empty paragraph of a section.
             for (Section srcSection : docToInsert.getSections())
@@ -161,20 +173,75 @@ public class ExNodeImporter extends ApiExampleBase {
                 "Hello world!", doc.getText().trim());
     }
 
+    @Test
+    public void insertAtMergeFieldCached() throws Exception {
+        Document subDoc = new Document();
+        DocumentBuilder builder = new DocumentBuilder(subDoc);
+        builder.write("Hello world!");
+
+        subDoc.save(getArtifactsDir() + "NodeImporter.InsertAtMergeFieldCached.docx");
+
+        // All merges share one cache, so the document inserted by every merge is parsed only once.
+        SourceDocumentCache cache = new SourceDocumentCache(16);
+
+        for (int i = 0; i < 3; i++) {
+            Document doc = new Document();
+            builder = new DocumentBuilder(doc);
+            builder.write("A document will appear here: ");
+            builder.insertField(" MERGEFIELD Document_1 ");
+
+            doc.getMailMerge().setFieldMergingCallback(new InsertDocumentAtMailMergeHandler(cache));
+            doc.getMailMerge().execute(new String[]{"Document_1"},
+                    new Object[]{getArtifactsDir() + "NodeImporter.InsertAtMergeFieldCached.docx"});
+
+            Assert.assertEquals("A document will appear here: \r" +
+                    "Hello world!", doc.getText().trim());
+        }
+
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(2.0 / 3.0, cache.getHitRate(), 0.0001);
+    }
+
     /// <summary>
     /// If the mail merge encounters a MERGEFIELD with a specified name,
     /// this handler treats the current value of a mail merge data source as a local system filename of a document.
     /// The handler will insert the document in its entirety into the MERGEFIELD instead of the current merge value.
     /// </summary>
+    /// <remarks>
+    /// If the handler is created with a cache, each document is parsed once for all merges that share the cache.
+    /// A handler serves a single destination document, so it keeps one clone of each inserted document
+    /// together with one importer, and reuses them for every record that refers to the same file.
+    /// </remarks>
     private static class InsertDocumentAtMailMergeHandler implements IFieldMergingCallback {
+        InsertDocumentAtMailMergeHandler() {
+            this(null);
+        }
+
+        InsertDocumentAtMailMergeHandler(SourceDocumentCache cache) {
+            mCache = cache;
+        }
+
         public void /*IFieldMergingCallback.*/fieldMerging(FieldMergingArgs args) throws Exception {
             if ("Document_1".equals(args.getDocumentFieldName())) {
                 DocumentBuilder builder = new DocumentBuilder(args.getDocument());
                 builder.moveToMergeField(args.getDocumentFieldName());
 
-                Document subDoc = new Document((String) args.getFieldValue());
+                String fileName = (String) args.getFieldValue();
+                if (mCache == null) {
+                    insertDocument(builder.getCurrentParagraph(), new Document(fileName));
+                } else {
+                    NodeImporter importer = mImporters.get(fileName);
+                    Document subDoc = mSubDocuments.get(fileName);
+                    if (importer == null) {
+                        subDoc = mCache.get(fileName);
+                        importer = new NodeImporter(subDoc, args.getDocument(), ImportFormatMode.KEEP_SOURCE_FORMATTING);
+                        mSubDocuments.put(fileName, subDoc);
+                        mImporters.put(fileName, importer);
+                    }
 
-                insertDocument(builder.getCurrentParagraph(), subDoc);
+                    insertDocument(builder.getCurrentParagraph(), subDoc, importer);
+                }
 
                 if (!builder.getCurrentParagraph().hasChildNodes())
                     builder.getCurrentParagraph().remove();
@@ -186,5 +253,95 @@ public class ExNodeImporter extends ApiExampleBase {
         public void /*IFieldMergingCallback.*/imageFieldMerging(ImageFieldMergingArgs args) {
             // Do nothing.
         }
+
+        private final SourceDocumentCache mCache;
+        private final Map<String, Document> mSubDocuments = new HashMap<String, Document>();
+        private final Map<String, NodeImporter> mImporters = new HashMap<String, NodeImporter>();
+    }
+
+    /// <summary>
+    /// A thread-safe cache of parsed documents, keyed by the path of the file and checked against its last modification time.
+    /// Holds at most maxEntries documents and evicts the least recently used one when full.
+    /// </summary>
+    /// <remarks>
+    /// The cached documents are never handed out, because a document must not be accessed by several threads at once.
+    /// Callers get a deep clone instead, which is much cheaper than loading the file again.
+    /// </remarks>
+    static class SourceDocumentCache {
+        SourceDocumentCache(final int maxEntries) {
+            if (maxEntries < 1)
+                throw new IllegalArgumentException("'maxEntries' must be positive");
+
+            mEntries = new LinkedHashMap<String, CachedDocument>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<String, CachedDocument> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        /// <summary>
+        /// Returns a clone of the document loaded from the file, which is parsed only if it is not in the cache
+        /// or has been modified since it was cached.
+        /// </summary>
+        Document get(String fileName) throws Exception {
+            File file = new File(fileName).getCanonicalFile();
+            String path = file.getPath();
+            long lastModified = file.lastModified();
+
+            CachedDocument cached;
+            synchronized (mEntries) {
+                cached = mEntries.get(path);
+            }
+
+            if (cached != null && cached.mLastModified == lastModified) {
+                mHitCount.incrementAndGet();
+                synchronized (cached.mDocument) {
+                    return cached.mDocument.deepClone();
+                }
+            }
+
+            mMissCount.incrementAndGet();
+
+            // The file is parsed outside the lock, so loading one document does not block readers of others.
+            // If two threads miss the same file at once, both parse it and the last one is kept.
+            Document loaded = new Document(path);
+            Document clone = loaded.deepClone();
+            synchronized (mEntries) {
+                mEntries.put(path, new CachedDocument(lastModified, loaded));
+            }
+
+            return clone;
+        }
+
+        long getHitCount() {
+            return mHitCount.get();
+        }
+
+        long getMissCount() {
+            return mMissCount.get();
+        }
+
+        /// <summary>
+        /// Gets the fraction of the requests served from the cache, or 0 if there were no requests.
+        /// </summary>
+        double getHitRate() {
+            long hits = mHitCount.get();
+            long total = hits + mMissCount.get();
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        private static class CachedDocument {
+            CachedDocument(long lastModified, Document document) {
+                mLastModified = lastModified;
+                mDocument = document;
+            }
+
+            private final long mLastModified;
+            private final Document mDocument;
+        }
+
+        private final LinkedHashMap<String, CachedDocument> mEntries;
+        private final AtomicLong mHitCount = new AtomicLong();
+        private final AtomicLong mMissCount = new AtomicLong();
     }
 }
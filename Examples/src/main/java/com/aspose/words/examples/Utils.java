@@ -47,4 +47,14 @@ public class Utils {
         return inputFilePath + "_out_." + extension;
     }
 
+    /**
+     * Returns the bytes as a lowercase hexadecimal string, e.g. to name files after a digest of their content.
+     */
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return hex.toString();
+    }
+
 }
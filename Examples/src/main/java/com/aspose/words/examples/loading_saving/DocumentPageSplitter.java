@@ -14,7 +14,19 @@ public class DocumentPageSplitter {
     /// </summary>
     /// <param name="source">source document</param>
     public DocumentPageSplitter(Document source) throws Exception {
-        this.pageNumberFinder = PageNumberFinderFactory.create(source);
+        this(source, false);
+    }
+
+    /// <summary>
+    /// Initializes a new instance of the <see cref="DocumentPageSplitter"/> class.
+    /// </summary>
+    /// <param name="source">source document</param>
+    /// <param name="incrementalSplit">
+    /// True to split runs across pages using the positions of the existing layout instead of laying out the document again.
+    /// Falls back to laying out the document again if the page breaks cannot be matched to the runs.
+    /// </param>
+    public DocumentPageSplitter(Document source, boolean incrementalSplit) throws Exception {
+        this.pageNumberFinder = PageNumberFinderFactory.create(source, incrementalSplit);
     }
 
     /// <summary>
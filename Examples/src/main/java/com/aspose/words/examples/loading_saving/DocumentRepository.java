@@ -0,0 +1,231 @@
+package com.aspose.words.examples.loading_saving;
+
+import com.aspose.words.Document;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//ExStart:
+/**
+ * Stores documents in the BLOB column of a database table without holding the saved document in memory.
+ * <p>
+ * Storing a document saves it into a pipe with a bounded buffer, while another thread passes the other end of the
+ * pipe to PreparedStatement.setBinaryStream, so the driver reads the document as it is being saved. The document
+ * itself is only accessed from the calling thread. Loading parses the document directly from Blob.getBinaryStream.
+ * Documents can be compressed with GZIP when stored; compressed and uncompressed documents are told apart when loaded,
+ * so compression can be turned on for an existing table.
+ * <p>
+ * Only JDBC is used, so the repository works with any database whose driver supports streams of unknown length,
+ * including embedded databases such as H2, HSQLDB or Derby. The table is created by createTable, or can be an
+ * existing table with the same columns.
+ */
+public class DocumentRepository {
+    /**
+     * The size of the buffer between saving the document and writing it to the database.
+     */
+    public static final int DEFAULT_PIPE_SIZE = 64 * 1024;
+
+    /**
+     * Creates a repository for the Documents table with uncompressed documents.
+     */
+    public DocumentRepository(Connection connection) {
+        this(connection, "Documents", false);
+    }
+
+    /**
+     * Creates a repository for the table.
+     *
+     * @param tableName The table with a FileName and a FileContent column.
+     * @param compress  Whether documents are compressed with GZIP when stored.
+     */
+    public DocumentRepository(Connection connection, String tableName, boolean compress) {
+        mConnection = connection;
+        mTableName = tableName;
+        mCompress = compress;
+    }
+
+    /**
+     * Creates the table of the repository.
+     */
+    public void createTable() throws SQLException {
+        Statement statement = mConnection.createStatement();
+        try {
+            statement.execute("CREATE TABLE " + mTableName + " (FileName VARCHAR(255) NOT NULL PRIMARY KEY, FileContent BLOB)");
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Saves the document in the specified format and inserts it into the table.
+     *
+     * @param fileName   The name the document is stored under.
+     * @param saveFormat The format to save the document in, one of the SaveFormat values.
+     */
+    public void store(String fileName, Document doc, int saveFormat) throws Exception {
+        final PreparedStatement statement = mConnection.prepareStatement(
+                "INSERT INTO " + mTableName + " (FileName, FileContent) VALUES (?, ?)");
+        try {
+            statement.setString(1, fileName);
+
+            PipedOutputStream pipeOut = new PipedOutputStream();
+            final PipedInputStream pipeIn = new PipedInputStream(pipeOut, DEFAULT_PIPE_SIZE);
+            final SaveResult saveResult = new SaveResult();
+
+            // The driver reads the document on another thread. If saving fails, the driver gets an error instead
+            // of the end of the stream, so a truncated document is never inserted.
+            FutureTask<Integer> insert = new FutureTask<Integer>(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    try {
+                        statement.setBinaryStream(2, new FilterInputStream(pipeIn) {
+                            public int read() throws IOException {
+                                return checkEnd(super.read());
+                            }
+
+                            public int read(byte[] b, int off, int len) throws IOException {
+                                return checkEnd(super.read(b, off, len));
+                            }
+
+                            private int checkEnd(int result) throws IOException {
+                                if (result < 0 && saveResult.mFailed)
+                                    throw new IOException("The document could not be saved.");
+                                return result;
+                            }
+                        });
+                        return statement.executeUpdate();
+                    } finally {
+                        // Unblocks the saving thread if the driver stops reading early.
+                        pipeIn.close();
+                    }
+                }
+            });
+            new Thread(insert, "DocumentRepository.store").start();
+
+            OutputStream stream = mCompress ? new GZIPOutputStream(pipeOut, DEFAULT_PIPE_SIZE) : pipeOut;
+            try {
+                doc.save(stream, saveFormat);
+                stream.close();
+            } catch (Throwable e) {
+                // Errors are caught as well, the driver must get an error instead of waiting for the pipe forever.
+                // If the insert has already ended, the driver stopped reading early, e.g. because the row was
+                // rejected, and saving only failed because the pipe was closed.
+                boolean isInsertEnded = insert.isDone();
+                saveResult.mFailed = true;
+                pipeOut.close();
+
+                // The insert fails too, as it gets an error instead of the end of the stream. The error which
+                // caused the other one is thrown, with the other one attached.
+                try {
+                    getResult(insert);
+                } catch (Exception driverError) {
+                    if (isInsertEnded) {
+                        driverError.addSuppressed(e);
+                        throw driverError;
+                    }
+                    e.addSuppressed(driverError);
+                }
+                throw e;
+            }
+
+            getResult(insert);
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Loads the document stored under the name.
+     *
+     * @return The document, or null if there is no document with the name.
+     */
+    public Document load(String fileName) throws Exception {
+        PreparedStatement statement = mConnection.prepareStatement(
+                "SELECT FileContent FROM " + mTableName + " WHERE FileName=?");
+        try {
+            statement.setString(1, fileName);
+            ResultSet result = statement.executeQuery();
+            try {
+                if (!result.next())
+                    return null;
+
+                Blob blob = result.getBlob(1);
+                try {
+                    InputStream stream = openContent(blob.getBinaryStream());
+                    try {
+                        return new Document(stream);
+                    } finally {
+                        stream.close();
+                    }
+                } finally {
+                    blob.free();
+                }
+            } finally {
+                result.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Deletes the document stored under the name.
+     *
+     * @return False if there is no document with the name.
+     */
+    public boolean delete(String fileName) throws SQLException {
+        PreparedStatement statement = mConnection.prepareStatement(
+                "DELETE FROM " + mTableName + " WHERE FileName=?");
+        try {
+            statement.setString(1, fileName);
+            return statement.executeUpdate() > 0;
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Wraps the content of the BLOB in a GZIPInputStream if it starts with the GZIP header.
+     * No document format Aspose.Words loads starts with these bytes.
+     */
+    private static InputStream openContent(InputStream blobStream) throws IOException {
+        InputStream stream = new BufferedInputStream(blobStream, DEFAULT_PIPE_SIZE);
+        stream.mark(2);
+        boolean isCompressed = stream.read() == 0x1F && stream.read() == 0x8B;
+        stream.reset();
+
+        return isCompressed ? new GZIPInputStream(stream, DEFAULT_PIPE_SIZE) : stream;
+    }
+
+    private static void getResult(FutureTask<Integer> task) throws Exception {
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static class SaveResult {
+        volatile boolean mFailed;
+    }
+
+    private final Connection mConnection;
+    private final String mTableName;
+    private final boolean mCompress;
+}
+//ExEnd:
@@ -4,16 +4,8 @@ import com.aspose.words.Document;
 import com.aspose.words.SaveFormat;
 import com.aspose.words.examples.Utils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.Statement;
 
 public class LoadAndSaveFromDatabase {
 
@@ -55,32 +47,18 @@ public class LoadAndSaveFromDatabase {
 	// ExStart: DeleteFromDatabase
 	// For complete examples and data files, please go to https://github.com/aspose-words/Aspose.Words-for-Java	
 	private static void DeleteFromDatabase(String fileName, Connection mConnection) throws Exception {
-		// Create the SQL command.
-		String commandString = "DELETE FROM Documents WHERE FileName='" + fileName + "'";
-		Statement statement = mConnection.createStatement();
 		// Delete the record.
-		statement.execute(commandString);
+		new DocumentRepository(mConnection).delete(fileName);
 	}
 	// ExEnd: DeleteFromDatabase
 
 	// ExStart: ReadFromDatabase
 	// For complete examples and data files, please go to https://github.com/aspose-words/Aspose.Words-for-Java
 	private static Document ReadFromDatabase(String fileName, Connection mConnection) throws Exception {
-		// Create the SQL command.
-		String commandString = "SELECT * FROM Documents WHERE FileName=?";
-		PreparedStatement statement = mConnection.prepareStatement(commandString);
-		statement.setString(1, fileName);
-
-		Document doc = null;
-		ResultSet result = statement.executeQuery();
-		if (result.next()) {
-			Blob blob = result.getBlob("FileContent");
-			InputStream inputStream = blob.getBinaryStream();
-			doc = new Document(inputStream);
-			inputStream.close();
+		// The document is parsed directly from the BLOB stream, without reading the whole BLOB first.
+		Document doc = new DocumentRepository(mConnection).load(fileName);
+		if (doc != null)
 			System.out.println("File saved");
-		}
-		result.close();
 		return doc;
 	}
 	// ExEnd: ReadFromDatabase
@@ -88,23 +66,12 @@ public class LoadAndSaveFromDatabase {
 	// ExStart: StoreToDatabase
 	// For complete examples and data files, please go to https://github.com/aspose-words/Aspose.Words-for-Java
 	public static void StoreToDatabase(Document doc, Connection mConnection) throws Exception {
-		// Create an output stream which uses byte array to save data
-		ByteArrayOutputStream aout = new ByteArrayOutputStream();
-		// Save the document to byte array
-		doc.save(aout, SaveFormat.DOCX);
-		// Get the byte array from output steam
-		// the byte array now contains the document
-		byte[] buffer = aout.toByteArray();
-
 		// Get the filename from the document.
 		String fileName = doc.getOriginalFileName();
-		String filePath = fileName.replace("\\", "\\\\");
 
-		// Create the SQL command.
-		String commandString = "INSERT INTO Documents (FileName, FileContent) VALUES('" + filePath + "', '" + buffer
-				+ "')";
-		Statement statement = mConnection.createStatement();
-		statement.executeUpdate(commandString);
+		// The document is streamed into the database while it is being saved,
+		// so the saved document is never held in memory as a whole.
+		new DocumentRepository(mConnection).store(fileName, doc, SaveFormat.DOCX);
 	}
 	// ExEnd: StoreToDatabase
 
@@ -6,6 +6,7 @@ import com.aspose.words.examples.Utils;
 import java.io.File;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.List;
 
 public class PageSplitter {
@@ -36,13 +37,108 @@ public class PageSplitter {
         DocumentPageSplitter splitter = new DocumentPageSplitter(doc);
 
         // Save each page to the disk as a separate document.
-        for (int page = 1; page <= doc.getPageCount(); page++) {
+        int pageCount = doc.getPageCount();
+        for (int page = 1; page <= pageCount; page++) {
             Document pageDoc = splitter.getDocumentOfPage(page);
-            pageDoc.save(new File(outFolder, MessageFormat.format("{0} - page{1} Out{2}", fileName, page, extensionName)).getAbsolutePath());
+            pageDoc.save(getPageFileName(outFolder, fileName, page, extensionName));
         }
     }
     //ExEnd:SplitDocumentToPages
 
+    //ExStart:SplitDocumentToPagesInParallel
+    /// <summary>
+    /// Splits the document into pages like <see cref="SplitDocumentToPages(File)"/> but saves the pages on the specified executor.
+    /// The layout and split pass runs once. Page documents are cut from the split document on the calling thread,
+    /// because the source document must not be accessed concurrently, and only saving runs in parallel.
+    /// </summary>
+    /// <param name="docName">The document to split.</param>
+    /// <param name="executor">The executor used to save the pages.</param>
+    /// <param name="maxPagesInFlight">The maximum number of page documents kept in memory waiting to be saved.</param>
+    /// <param name="callback">Optional callback which is notified of saved pages in page order.</param>
+    public static void SplitDocumentToPagesInParallel(File docName, ExecutorService executor, int maxPagesInFlight,
+                                                      IPageSavedCallback callback) throws Exception {
+        if (maxPagesInFlight < 1) {
+            throw new IllegalArgumentException("'maxPagesInFlight' must be positive");
+        }
+
+        String folderName = docName.getParent();
+        String fileName = docName.getName();
+        String extensionName = fileName.substring(fileName.lastIndexOf("."));
+        String outFolder = new File(folderName, "Out").getAbsolutePath();
+        System.out.println("Processing document: " + fileName);
+
+        Document doc = new Document(docName.getAbsolutePath());
+        DocumentPageSplitter splitter = new DocumentPageSplitter(doc);
+
+        final Semaphore pagesInFlight = new Semaphore(maxPagesInFlight);
+        ArrayDeque<Future<String>> pendingPages = new ArrayDeque<Future<String>>();
+        int nextPageToReport = 1;
+        int pageCount = doc.getPageCount();
+        try {
+            for (int page = 1; page <= pageCount; page++) {
+                // Block until a slot is free so that cut pages do not pile up when saving is slower than splitting.
+                pagesInFlight.acquire();
+
+                final Document pageDoc;
+                try {
+                    pageDoc = splitter.getDocumentOfPage(page);
+                } catch (Exception e) {
+                    pagesInFlight.release();
+                    throw e;
+                }
+
+                final String pageFileName = getPageFileName(outFolder, fileName, page, extensionName);
+                try {
+                    pendingPages.add(executor.submit(new Callable<String>() {
+                        public String call() throws Exception {
+                            try {
+                                pageDoc.save(pageFileName);
+                                return pageFileName;
+                            } finally {
+                                pagesInFlight.release();
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    // The page never runs, so it cannot release its slot itself.
+                    pagesInFlight.release();
+                    throw e;
+                }
+
+                // Report the pages which are already saved without waiting for the pages after them.
+                while (!pendingPages.isEmpty() && pendingPages.peek().isDone()) {
+                    reportSavedPage(pendingPages.poll(), nextPageToReport++, callback);
+                }
+            }
+
+            while (!pendingPages.isEmpty()) {
+                reportSavedPage(pendingPages.poll(), nextPageToReport++, callback);
+            }
+        } finally {
+            for (Future<String> pendingPage : pendingPages) {
+                pendingPage.cancel(false);
+            }
+        }
+    }
+
+    private static void reportSavedPage(Future<String> savedPage, int page, IPageSavedCallback callback) throws Exception {
+        String pageFileName;
+        try {
+            pageFileName = savedPage.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+
+        if (callback != null) {
+            callback.pageSaved(page, pageFileName);
+        }
+    }
+    //ExEnd:SplitDocumentToPagesInParallel
+
+    private static String getPageFileName(String outFolder, String fileName, int page, String extensionName) {
+        return new File(outFolder, MessageFormat.format("{0} - page{1} Out{2}", fileName, page, extensionName)).getAbsolutePath();
+    }
+
     //ExStart:SplitAllDocumentsToPages
     public static void SplitAllDocumentsToPages(String folderName) throws Exception {
         File[] files = new File(folderName).listFiles();
@@ -54,8 +150,54 @@ public class PageSplitter {
         }
     }
     //ExEnd:SplitAllDocumentsToPages
+
+    //ExStart:SplitAllDocumentsToPagesInParallel
+    /// <summary>
+    /// Splits every document of the folder on its own worker thread. Documents do not share any state,
+    /// so each of them is split and saved independently.
+    /// </summary>
+    /// <param name="folderName">The folder containing the documents.</param>
+    /// <param name="threadCount">The number of documents processed at the same time.</param>
+    public static void SplitAllDocumentsToPagesInParallel(String folderName, int threadCount) throws Exception {
+        File[] files = new File(folderName).listFiles();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            ArrayList<Future<Void>> splitTasks = new ArrayList<Future<Void>>();
+            for (final File file : files) {
+                if (file.isFile()) {
+                    splitTasks.add(executor.submit(new Callable<Void>() {
+                        public Void call() throws Exception {
+                            SplitDocumentToPages(file);
+                            return null;
+                        }
+                    }));
+                }
+            }
+
+            for (Future<Void> splitTask : splitTasks) {
+                try {
+                    splitTask.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    //ExEnd:SplitAllDocumentsToPagesInParallel
 }
 
+//ExStart:IPageSavedCallback
+/// <summary>
+/// Receives the pages saved by <see cref="PageSplitter.SplitDocumentToPagesInParallel"/> in page order.
+/// </summary>
+interface IPageSavedCallback {
+    void pageSaved(int pageIndex, String fileName) throws Exception;
+}
+//ExEnd:IPageSavedCallback
+
 //ExStart:DocumentPageSplitter
 
 class PageNumberFinder {
@@ -63,16 +205,35 @@ class PageNumberFinder {
     private Hashtable nodeStartPageLookup = new Hashtable();
     private Hashtable nodeEndPageLookup = new Hashtable();
     private LayoutCollector collector;
+    private LayoutEnumerator enumerator;
+
+    // When set, runs are split using page positions read from the existing layout instead of rebuilding it.
+    private boolean incrementalSplit;
 
-    // Maps page number to a list of nodes found on that page.
-    private Hashtable reversePageLookup;
+    // Nodes of the document in document order. Indices into this array are used by the page lookup below.
+    private Node[] indexedNodes;
+
+    // Maps page number to the ascending indices of the nodes (in indexedNodes) found on that page.
+    private int[][] reversePageLookup;
 
     /// <summary>
     /// Initializes a new instance of the <see cref="PageNumberFinder"/> class.
     /// </summary>
     /// <param name="collector">A collector instance which has layout model records for the document.</param>
     public PageNumberFinder(LayoutCollector collector) {
+        this(collector, false);
+    }
+
+    /// <summary>
+    /// Initializes a new instance of the <see cref="PageNumberFinder"/> class.
+    /// </summary>
+    /// <param name="collector">A collector instance which has layout model records for the document.</param>
+    /// <param name="incrementalSplit">
+    /// True to assign page numbers to split runs from the existing layout rather than rebuilding the layout of the whole document.
+    /// </param>
+    public PageNumberFinder(LayoutCollector collector, boolean incrementalSplit) {
         this.collector = collector;
+        this.incrementalSplit = incrementalSplit;
     }
 
     /// <summary>
@@ -149,22 +310,29 @@ class PageNumberFinder {
         }
 
         this.checkPageListsPopulated();
-        ArrayList pageNodes = new ArrayList();
+
+        // Nodes spanning several pages are listed on each of them, so de-duplicate by node index.
+        // Iterating the set afterwards also keeps the result in document order.
+        BitSet matchedNodes = new BitSet(this.indexedNodes.length);
         for (int page = startPage; page <= endPage; page++) {
-            // Some pages can be empty.
-            if (!this.reversePageLookup.containsKey(page)) {
-                continue;
-            }
+            for (int nodeIndex : this.reversePageLookup[page]) {
+                if (matchedNodes.get(nodeIndex)) {
+                    continue;
+                }
 
-            for (Node node : (Iterable<Node>) this.reversePageLookup.get(page)) {
+                Node node = this.indexedNodes[nodeIndex];
                 if (node.getParentNode() != null
-                        && (nodeType == NodeType.ANY || node.getNodeType() == nodeType)
-                        && !pageNodes.contains(node)) {
-                    pageNodes.add(node);
+                        && (nodeType == NodeType.ANY || node.getNodeType() == nodeType)) {
+                    matchedNodes.set(nodeIndex);
                 }
             }
         }
 
+        ArrayList pageNodes = new ArrayList(matchedNodes.cardinality());
+        for (int nodeIndex = matchedNodes.nextSetBit(0); nodeIndex >= 0; nodeIndex = matchedNodes.nextSetBit(nodeIndex + 1)) {
+            pageNodes.add(this.indexedNodes[nodeIndex]);
+        }
+
         return pageNodes;
     }
 
@@ -173,13 +341,16 @@ class PageNumberFinder {
     /// but no longer appear across a page.
     /// </summary>
     public void splitNodesAcrossPages() throws Exception {
-        for (Paragraph paragraph : (Iterable<Paragraph>) this.getDocument().getChildNodes(NodeType.PARAGRAPH, true)) {
-            if (this.getPage(paragraph) != this.getPageEnd(paragraph)) {
-                this.splitRunsByWords(paragraph);
+        // The incremental split gives up without modifying the document if the layout of any paragraph cannot be matched.
+        if (!this.incrementalSplit || !this.splitRunsIncrementally()) {
+            for (Paragraph paragraph : (Iterable<Paragraph>) this.getDocument().getChildNodes(NodeType.PARAGRAPH, true)) {
+                if (this.getPage(paragraph) != this.getPageEnd(paragraph)) {
+                    this.splitRunsByWords(paragraph);
+                }
             }
-        }
 
-        this.clearCollector();
+            this.clearCollector();
+        }
 
         // Visit any composites which are possibly split across pages and split them into separate nodes.
         this.getDocument().accept(new SectionSplitter(this));
@@ -216,25 +387,51 @@ class PageNumberFinder {
             return;
         }
 
-        this.reversePageLookup = new Hashtable();
+        int pageCount = this.getDocument().getPageCount();
 
-        // Add each node to a list which represent the nodes found on each page.
-        for (Node node : (Iterable<Node>) this.getDocument().getChildNodes(NodeType.ANY, true)) {
+        // Take a snapshot of the nodes rather than iterating the live collection.
+        Node[] nodes = this.getDocument().getChildNodes(NodeType.ANY, true).toArray();
+        int[] startPages = new int[nodes.length];
+        int[] endPages = new int[nodes.length];
+        int[] nodeCountPerPage = new int[pageCount + 1];
+
+        // First pass: resolve the page interval of each node and count the nodes found on each page.
+        for (int i = 0; i < nodes.length; i++) {
             // Headers/Footers follow sections. They are not split by themselves.
-            if (isHeaderFooterType(node)) {
+            if (isHeaderFooterType(nodes[i])) {
                 continue;
             }
 
-            int startPage = this.getPage(node);
-            int endPage = this.getPageEnd(node);
+            int startPage = Math.max(this.getPage(nodes[i]), 1);
+            int endPage = Math.min(this.getPageEnd(nodes[i]), pageCount);
             for (int page = startPage; page <= endPage; page++) {
-                if (!this.reversePageLookup.containsKey(page)) {
-                    this.reversePageLookup.put(page, new ArrayList());
-                }
+                nodeCountPerPage[page]++;
+            }
+
+            startPages[i] = startPage;
+            endPages[i] = endPage;
+        }
 
-                ((ArrayList) this.reversePageLookup.get(page)).add(node);
+        // Second pass: fill the per page index arrays. Nodes are visited in document order so each array is sorted.
+        int[][] pageLookup = new int[pageCount + 1][];
+        for (int page = 0; page <= pageCount; page++) {
+            pageLookup[page] = new int[nodeCountPerPage[page]];
+            nodeCountPerPage[page] = 0;
+        }
+
+        for (int i = 0; i < nodes.length; i++) {
+            // Header/footer nodes were not assigned any page.
+            if (startPages[i] == 0) {
+                continue;
+            }
+
+            for (int page = startPages[i]; page <= endPages[i]; page++) {
+                pageLookup[page][nodeCountPerPage[page]++] = i;
             }
         }
+
+        this.indexedNodes = nodes;
+        this.reversePageLookup = pageLookup;
     }
 
     private void splitRunsByWords(Paragraph paragraph) throws Exception {
@@ -247,28 +444,157 @@ class PageNumberFinder {
         }
     }
 
-    private void splitRunByWords(Run run) {
-        String[] words = run.getText().split(" ");
-        List<String> list = Arrays.asList(words);
-        Collections.reverse(list);
-        String[] reversedWords = (String[]) list.toArray();
+    /// <summary>
+    /// Splits runs which appear over two or more pages without rebuilding the document layout.
+    /// Only paragraphs which span pages are inspected. Their page breaks are read from the existing layout
+    /// and the split runs get page numbers through the start/end page overrides.
+    /// Nodes which are not split keep their page numbers provided by the collector.
+    /// </summary>
+    /// <returns>
+    /// False if the page breaks of some run could not be resolved. The document is not modified in this case.
+    /// </returns>
+    private boolean splitRunsIncrementally() throws Exception {
+        ArrayList<Run> straddlingRuns = new ArrayList<Run>();
+        ArrayList<int[]> runPageBreaks = new ArrayList<int[]>();
+        ArrayList<Paragraph> splitParagraphs = new ArrayList<Paragraph>();
+
+        // Resolve all page breaks before modifying anything, so that we can still fall back to a full layout rebuild.
+        for (Node node : this.getDocument().getChildNodes(NodeType.PARAGRAPH, true).toArray()) {
+            Paragraph paragraph = (Paragraph) node;
+            if (this.getPage(paragraph) == this.getPageEnd(paragraph)) {
+                continue;
+            }
 
-        for (String word : reversedWords) {
-            int pos = run.getText().length() - word.length() - 1;
-            if (pos > 1) {
-                splitRun(run, run.getText().length() - word.length() - 1);
+            ParagraphLayoutText layoutText = ParagraphLayoutText.read(this.collector, this.getEnumerator(), paragraph);
+            if (layoutText == null) {
+                return false;
+            }
+
+            int searchFrom = 0;
+            for (Run run : paragraph.getRuns()) {
+                int startPage = this.getPage(run);
+                int endPage = this.getPageEnd(run);
+                int runOffset = layoutText.indexOf(run.getText(), searchFrom);
+                if (startPage == endPage) {
+                    // Text of runs such as field codes is not rendered. This is fine as long as the run is not split.
+                    if (runOffset >= 0) {
+                        searchFrom = runOffset + run.getText().length();
+                    }
+
+                    continue;
+                }
+
+                int[] pageBreaks = runOffset < 0 ? null : layoutText.getPageBreaks(runOffset, run.getText().length(), startPage, endPage);
+                if (pageBreaks == null) {
+                    return false;
+                }
+
+                searchFrom = runOffset + run.getText().length();
+                straddlingRuns.add(run);
+                runPageBreaks.add(pageBreaks);
+                if (splitParagraphs.isEmpty() || splitParagraphs.get(splitParagraphs.size() - 1) != paragraph) {
+                    splitParagraphs.add(paragraph);
+                }
+            }
+        }
+
+        // The layout is not rebuilt, so page numbers of modified nodes must not be read from the collector.
+        this.freezePageNumbers(splitParagraphs);
+
+        for (int i = 0; i < straddlingRuns.size(); i++) {
+            this.splitRunAtPageBreaks(straddlingRuns.get(i), runPageBreaks.get(i));
+        }
+
+        return true;
+    }
+
+    /// <summary>
+    /// Records the start and end pages of the paragraphs about to be split, of their descendants and of their
+    /// ancestors in the overrides, so that they are read from the layout built before the document is modified.
+    /// Only the runs of these paragraphs are modified, so the collector still has the page numbers of all other nodes.
+    /// </summary>
+    /// <param name="paragraphs">The paragraphs about to be split, in document order.</param>
+    private void freezePageNumbers(ArrayList<Paragraph> paragraphs) throws Exception {
+        for (Paragraph paragraph : paragraphs) {
+            for (Node child : paragraph.getChildNodes(NodeType.ANY, true).toArray()) {
+                this.freezePageNumbers(child);
+            }
+
+            // Stop at the first ancestor already recorded for a previous paragraph, its own ancestors are recorded too.
+            for (Node node = paragraph; node != null && node.getNodeType() != NodeType.DOCUMENT; node = node.getParentNode()) {
+                if (this.nodeStartPageLookup.containsKey(node)) {
+                    break;
+                }
+
+                this.freezePageNumbers(node);
             }
         }
     }
 
+    private void freezePageNumbers(Node node) throws Exception {
+        // Headers/Footers follow sections. They are not split by themselves.
+        if (!isHeaderFooterType(node)) {
+            this.addPageNumbersForNode(node, this.getPage(node), this.getPageEnd(node));
+        }
+    }
+
     /// <summary>
-    /// Splits text of the specified run into two runs.
-    /// Inserts the new run just after the specified run.
+    /// Splits the run once at each page break and assigns each part the page it is found on.
+    /// The page breaks come from the line starts of the layout, so they are already at the word boundaries chosen
+    /// by the layout (or inside a word if the layout had to break it).
     /// </summary>
-    private static Run splitRun(Run run, int position) {
+    /// <param name="run">The run to split.</param>
+    /// <param name="pageBreaks">Offsets in the run text where each next page begins.</param>
+    private void splitRunAtPageBreaks(Run run, int[] pageBreaks) throws Exception {
+        int startPage = this.getPage(run);
+        String text = run.getText();
+        int end = text.length();
+        for (int i = pageBreaks.length - 1; i >= 0; i--) {
+            // Pages with no text of the run, e.g. pages with only empty lines, have the same break as the next page.
+            if (pageBreaks[i] == end) {
+                continue;
+            }
+
+            Run afterRun = insertRunAfter(run, text.substring(pageBreaks[i], end));
+            this.addPageNumbersForNode(afterRun, startPage + i + 1, startPage + i + 1);
+            end = pageBreaks[i];
+        }
+
+        run.setText(text.substring(0, end));
+        this.addPageNumbersForNode(run, startPage, startPage);
+    }
+
+    private LayoutEnumerator getEnumerator() throws Exception {
+        if (this.enumerator == null) {
+            this.enumerator = new LayoutEnumerator(this.getDocument());
+        }
+
+        return this.enumerator;
+    }
+
+    /// <summary>
+    /// Splits the run into separate runs at every space so that the layout can place each word on its own page.
+    /// Words are cut from the original text from the end, so each character is copied once and the run text is set once.
+    /// </summary>
+    private void splitRunByWords(Run run) {
+        String text = run.getText();
+        int end = text.length();
+        for (int pos = text.lastIndexOf(' ', end - 1); pos > 1; pos = text.lastIndexOf(' ', pos - 1)) {
+            insertRunAfter(run, text.substring(pos, end));
+            end = pos;
+        }
+
+        if (end < text.length()) {
+            run.setText(text.substring(0, end));
+        }
+    }
+
+    /// <summary>
+    /// Inserts a copy of the specified run with the specified text just after the run.
+    /// </summary>
+    private static Run insertRunAfter(Run run, String text) {
         Run afterRun = (Run) run.deepClone(true);
-        afterRun.setText(run.getText().substring(position));
-        run.setText(run.getText().substring(0, position));
+        afterRun.setText(text);
         run.getParentNode().insertAfter(afterRun, run);
         return afterRun;
     }
@@ -288,14 +614,140 @@ class PageNumberFinderFactory {
     }
 
     public static PageNumberFinder create(Document document) throws Exception {
+        return create(document, false);
+    }
+
+    public static PageNumberFinder create(Document document, boolean incrementalSplit) throws Exception {
         LayoutCollector layoutCollector = new LayoutCollector(document);
         document.updatePageLayout();
-        PageNumberFinder pageNumberFinder = new PageNumberFinder(layoutCollector);
+        PageNumberFinder pageNumberFinder = new PageNumberFinder(layoutCollector, incrementalSplit);
         pageNumberFinder.splitNodesAcrossPages();
         return pageNumberFinder;
     }
 }
 
+/// <summary>
+/// Rendered text of a paragraph together with the pages its lines are found on.
+/// It is read from the layout built before the document is modified.
+/// </summary>
+class ParagraphLayoutText {
+    private String text;
+
+    // Offset of the first character of each line in text and the 1-based page index of that line.
+    private int[] lineStarts;
+    private int[] linePages;
+
+    private ParagraphLayoutText(String text, int[] lineStarts, int[] linePages) {
+        this.text = text;
+        this.lineStarts = lineStarts;
+        this.linePages = linePages;
+    }
+
+    /// <summary>
+    /// Reads the lines of the paragraph. The enumerator is positioned at the paragraph mark, which is found on the last
+    /// line of the paragraph, and lines are read backwards until the line of the previous paragraph mark is reached.
+    /// </summary>
+    /// <returns>
+    /// Null if the paragraph has no layout entity.
+    /// </returns>
+    public static ParagraphLayoutText read(LayoutCollector collector, LayoutEnumerator enumerator, Paragraph paragraph) throws Exception {
+        Object paragraphMark = collector.getEntity(paragraph);
+        if (paragraphMark == null) {
+            return null;
+        }
+
+        enumerator.setCurrent(paragraphMark);
+        if (!enumerator.moveParent() || enumerator.getType() != LayoutEntityType.LINE) {
+            return null;
+        }
+
+        ArrayList<String> lineTexts = new ArrayList<String>();
+        ArrayList<Integer> pages = new ArrayList<Integer>();
+        do {
+            StringBuilder lineText = new StringBuilder();
+            boolean endsParagraph = false;
+            if (enumerator.moveFirstChild()) {
+                do {
+                    if (isParagraphEndKind(enumerator.getKind())) {
+                        endsParagraph = true;
+                    } else if (enumerator.getType() == LayoutEntityType.SPAN) {
+                        lineText.append(enumerator.getText());
+                    }
+                } while (enumerator.moveNext());
+
+                enumerator.moveParent();
+            }
+
+            // Every line but the last one of this paragraph ends with the mark of the previous paragraph.
+            if (endsParagraph && !lineTexts.isEmpty()) {
+                break;
+            }
+
+            lineTexts.add(lineText.toString());
+            pages.add(enumerator.getPageIndex());
+        } while (enumerator.movePreviousLogical());
+
+        // Lines were collected backwards.
+        Collections.reverse(lineTexts);
+        Collections.reverse(pages);
+
+        StringBuilder text = new StringBuilder();
+        int[] lineStarts = new int[lineTexts.size()];
+        int[] linePages = new int[lineTexts.size()];
+        for (int i = 0; i < lineTexts.size(); i++) {
+            lineStarts[i] = text.length();
+            linePages[i] = pages.get(i);
+            text.append(lineTexts.get(i));
+        }
+
+        return new ParagraphLayoutText(text.toString(), lineStarts, linePages);
+    }
+
+    /// <summary>
+    /// Finds the rendered text of a run in the paragraph.
+    /// </summary>
+    public int indexOf(String runText, int fromIndex) {
+        return runText.length() == 0 ? -1 : this.text.indexOf(runText, fromIndex);
+    }
+
+    /// <summary>
+    /// Returns offsets in the run text where each page after the start page begins.
+    /// </summary>
+    /// <param name="runOffset">Offset of the run text in the paragraph text.</param>
+    /// <param name="runLength">Length of the run text.</param>
+    /// <param name="startPage">The page the run begins on.</param>
+    /// <param name="endPage">The page the run ends on.</param>
+    /// <returns>
+    /// Null if the layout does not place a page break inside the run for every page of the run.
+    /// </returns>
+    public int[] getPageBreaks(int runOffset, int runLength, int startPage, int endPage) {
+        int[] pageBreaks = new int[endPage - startPage];
+        int line = 0;
+        for (int page = startPage + 1; page <= endPage; page++) {
+            while (line < this.linePages.length && this.linePages[line] < page) {
+                line++;
+            }
+
+            if (line == this.linePages.length || this.linePages[line] != page) {
+                return null;
+            }
+
+            int pageBreak = this.lineStarts[line] - runOffset;
+            if (pageBreak <= 0 || pageBreak >= runLength) {
+                return null;
+            }
+
+            pageBreaks[page - startPage - 1] = pageBreak;
+        }
+
+        return pageBreaks;
+    }
+
+    private static boolean isParagraphEndKind(String kind) {
+        return "PARAGRAPH".equals(kind) || "CELL".equals(kind) || "ROW".equals(kind) || "SECTION".equals(kind);
+    }
+}
+
 class SectionSplitter extends DocumentVisitor {
     private PageNumberFinder pageNumberFinder;
 
@@ -14,6 +14,12 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.*;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -62,7 +68,14 @@ public class Word2Help {
 
         TopicCollection topics = new TopicCollection(dataDir, fixUrl);
         topics.addFromDir(dataDir);
-        topics.writeHtml(outDir);
+
+        // Topics are independent documents, so they can be converted on all processor cores.
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            topics.writeHtml(outDir, true, executor);
+        } finally {
+            executor.shutdown();
+        }
         topics.writeContentXml(outDir);
         //ExEnd:Word2Help
 
@@ -292,6 +305,16 @@ class TopicWord2Help {
      * Creates a topic.
      */
     public TopicWord2Help(Section section, String fixUrl) throws Exception {
+        this(section, fixUrl, null);
+    }
+
+    /**
+     * Creates a topic.
+     *
+     * @param bookmarkFileNames The topic file names of the bookmarks of the original document, as returned by
+     *                          getBookmarkFileNames, or null to look every bookmark up in the original document.
+     */
+    public TopicWord2Help(Section section, String fixUrl, HashMap<String, String> bookmarkFileNames) throws Exception {
         mTopicDoc = new Document();
         mTopicDoc.appendChild(mTopicDoc.importNode(section, true, ImportFormatMode.KEEP_SOURCE_FORMATTING));
         mTopicDoc.getFirstSection().remove();
@@ -313,14 +336,29 @@ class TopicWord2Help {
 
         mTopicDoc.getBuiltInDocumentProperties().setTitle(mTitle);
 
-        fixHyperlinks(section.getDocument(), fixUrl);
+        fixHyperlinks(section.getDocument(), fixUrl, bookmarkFileNames);
+    }
+
+    /**
+     * Returns the name of the topic file each bookmark of the document links to, by bookmark name.
+     * Building the map once per document saves looking up the bookmark for every local hyperlink of every topic.
+     */
+    public static HashMap<String, String> getBookmarkFileNames(Document doc) throws Exception {
+        HashMap<String, String> bookmarkFileNames = new HashMap<String, String>();
+        for (Bookmark bmk : doc.getRange().getBookmarks()) {
+            Node parent = bmk.getBookmarkStart().getParentNode();
+            if (parent instanceof Paragraph)
+                bookmarkFileNames.put(bmk.getName(), headingToFileName(parent.getText().trim()) + ".html");
+        }
+
+        return bookmarkFileNames;
     }
 
     private static void throwTopicException(String message, Section section) throws Exception {
         throw new Exception(message + " Section text: " + section.getBody().toString(SaveFormat.TEXT).substring(0, 50));
     }
 
-    private void fixHyperlinks(DocumentBase originalDoc, String fixUrl) throws Exception {
+    private void fixHyperlinks(DocumentBase originalDoc, String fixUrl, HashMap<String, String> bookmarkFileNames) throws Exception {
         if (fixUrl.endsWith("/"))
             fixUrl = fixUrl.substring(0, fixUrl.length() - 1);
 
@@ -336,6 +374,16 @@ class TopicWord2Help {
                 // It causes MS Word to auto generate the bookmark name.
                 String bmkName = hyperlink.getTarget();
 
+                if (bookmarkFileNames != null) {
+                    String fileName = bookmarkFileNames.get(bmkName);
+                    if (fileName == null)
+                        throw new Exception(MessageFormat.format("Found a link to a bookmark, but cannot locate the bookmark. Name:{0}.", bmkName));
+
+                    hyperlink.setTarget(fileName);
+                    hyperlink.setLocal(false);
+                    continue;
+                }
+
                 // But we have to follow the bookmark to get the text of the topic heading paragraph
                 // in order to be able to build the proper filename of the topic file.
                 Bookmark bmk = originalDoc.getRange().getBookmarks().get(bmkName);
@@ -366,12 +414,7 @@ class TopicWord2Help {
     public void writeHtml(String htmlHeader, String htmlBanner, String htmlFooter, String outDir) throws Exception {
         String fileName = new File(outDir, getFileName()).getAbsolutePath();
 
-        HtmlSaveOptions saveOptions = new HtmlSaveOptions();
-        saveOptions.setPrettyFormat(true);
-        // This is to allow headings to appear to the left of main text.
-        saveOptions.setAllowNegativeIndent(true);
-        // Disable headers and footers.
-        saveOptions.setExportHeadersFootersMode(ExportHeadersFootersMode.NONE);
+        HtmlSaveOptions saveOptions = createHtmlSaveOptions();
 
         // Export the document to HTML.
         mTopicDoc.save(fileName, saveOptions);
@@ -414,6 +457,87 @@ class TopicWord2Help {
         }
     }
 
+    /**
+     * Does the same as writeHtml, but the topic is exported into memory and the head, banner, body id and
+     * footer are applied while the HTML is written out, in a single pass over the HTML. The topic file is
+     * written once and never read back.
+     */
+    public void writeHtmlInMemory(String htmlHeader, String htmlBanner, String htmlFooter, String outDir) throws Exception {
+        final String baseName = headingToFileName(mTitle);
+
+        HtmlSaveOptions saveOptions = createHtmlSaveOptions();
+        // When saving to a stream, the images folder must be specified. The images are named after the topic,
+        // as they are when saving to a file, so that the images of different topics do not overwrite each other.
+        saveOptions.setImagesFolder(outDir);
+        saveOptions.setImagesFolderAlias(".");
+        saveOptions.setImageSavingCallback(new IImageSavingCallback() {
+            public void imageSaving(ImageSavingArgs args) throws Exception {
+                args.setImageFileName(baseName + "." + args.getImageFileName());
+            }
+        });
+
+        // Export the document to HTML.
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        mTopicDoc.save(stream, saveOptions);
+        String html = stream.toString("UTF-8");
+
+        // Builds the HTML <head> element.
+        String header = RegularExpressions.getHtmlTitle().matcher(htmlHeader).replaceFirst(Matcher.quoteReplacement(mTitle));
+        String banner = htmlBanner.replace("###TOPIC_NAME###", mTitle);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(outDir, getFileName())), "UTF-8"));
+        try {
+            int pos = 0;
+
+            // Applies the new <head> element instead of the original one.
+            Matcher head = RegularExpressions.getHtmlHead().matcher(html);
+            if (head.find()) {
+                writer.write(html, 0, head.start());
+                writer.write(header);
+                pos = head.end();
+            }
+
+            // Add the standard banner.
+            int bodyStart = html.indexOf("<body>", pos);
+            if (bodyStart >= 0) {
+                int bannerPos = bodyStart + "<body>".length();
+                writer.write(html, pos, bannerPos - pos);
+                writer.write(banner);
+                pos = bannerPos;
+            }
+
+            // Give the first div of the body the id used by the stylesheet.
+            Matcher bodyDivStart = RegularExpressions.getHtmlBodyDivStart().matcher(html);
+            if (bodyDivStart.find(pos)) {
+                writer.write(html, pos, bodyDivStart.start() - pos);
+                writer.write(" id=\"nstext\"");
+                pos = bodyDivStart.end();
+            }
+
+            // Add the standard footer.
+            int bodyEnd = html.lastIndexOf("</body>");
+            if (bodyEnd >= pos) {
+                writer.write(html, pos, bodyEnd - pos);
+                writer.write(htmlFooter);
+                pos = bodyEnd;
+            }
+
+            writer.write(html, pos, html.length() - pos);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static HtmlSaveOptions createHtmlSaveOptions() throws Exception {
+        HtmlSaveOptions saveOptions = new HtmlSaveOptions();
+        saveOptions.setPrettyFormat(true);
+        // This is to allow headings to appear to the left of main text.
+        saveOptions.setAllowNegativeIndent(true);
+        // Disable headers and footers.
+        saveOptions.setExportHeadersFootersMode(ExportHeadersFootersMode.NONE);
+        return saveOptions;
+    }
+
     /**
      * Removes various characters from the header to form a file name that does not require escaping.
      */
@@ -504,19 +628,70 @@ class TopicCollection {
     public void addFromFile(String fileName) throws Exception {
         Document doc = new Document(fileName);
         insertTopicSections(doc);
-        addTopics(doc);
+        addTopics(doc, TopicWord2Help.getBookmarkFileNames(doc));
     }
 
     /**
      * Saves all topics as HTML files.
      */
     public void writeHtml(String outDir) throws Exception {
+        writeHtml(outDir, false);
+    }
+
+    /**
+     * Saves all topics as HTML files.
+     *
+     * @param inMemory True to export each topic into memory and write its file once, false to write the file
+     *                 and then read it back to apply the templates.
+     */
+    public void writeHtml(String outDir, boolean inMemory) throws Exception {
         for (TopicWord2Help topic : (Iterable<TopicWord2Help>) mTopics) {
-            if (!topic.isHeadingOnly())
+            if (topic.isHeadingOnly())
+                continue;
+
+            if (inMemory)
+                topic.writeHtmlInMemory(mHtmlHeader, mHtmlBanner, mHtmlFooter, outDir);
+            else
                 topic.writeHtml(mHtmlHeader, mHtmlBanner, mHtmlFooter, outDir);
         }
     }
 
+    /**
+     * Saves all topics as HTML files on the specified executor. Each topic is a separate document, so the topics
+     * are converted in parallel. Returns when all topics are saved, so writeContentXml can be called afterwards.
+     */
+    public void writeHtml(final String outDir, final boolean inMemory, ExecutorService executor) throws Exception {
+        ArrayList<Future<Void>> results = new ArrayList<Future<Void>>();
+        for (final TopicWord2Help topic : (Iterable<TopicWord2Help>) mTopics) {
+            if (topic.isHeadingOnly())
+                continue;
+
+            results.add(executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    if (inMemory)
+                        topic.writeHtmlInMemory(mHtmlHeader, mHtmlBanner, mHtmlFooter, outDir);
+                    else
+                        topic.writeHtml(mHtmlHeader, mHtmlBanner, mHtmlFooter, outDir);
+                    return null;
+                }
+            }));
+        }
+
+        // Wait for all topics, so that no topic is still being written when an error is reported.
+        Exception error = null;
+        for (Future<Void> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                if (error == null)
+                    error = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+            }
+        }
+
+        if (error != null)
+            throw error;
+    }
+
     /**
      * Saves the content.xml file that describes the tree of topics.
      */
@@ -624,10 +799,10 @@ class TopicCollection {
     /**
      * Goes through the sections in the document and adds them as topics to the collection.
      */
-    private void addTopics(Document doc) throws Exception {
+    private void addTopics(Document doc, HashMap<String, String> bookmarkFileNames) throws Exception {
         for (Section section : doc.getSections()) {
             try {
-                TopicWord2Help topic = new TopicWord2Help(section, mFixUrl);
+                TopicWord2Help topic = new TopicWord2Help(section, mFixUrl, bookmarkFileNames);
                 mTopics.add(topic);
             } catch (Exception e) {
                 // If one topic fails, we continue with others.
@@ -0,0 +1,282 @@
+package com.aspose.words.examples.mail_merge;
+
+import com.aspose.words.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+//ExStart:
+/**
+ * Produces one document per record from a template, merging the records on an executor.
+ * <p>
+ * The merge fields of the template are analyzed once, when the engine is created, and only the columns used by
+ * the template are passed to each merge. The template is cloned on the calling thread, because the template must
+ * not be accessed concurrently; merging and saving the clones runs in parallel. At most maxInFlight records are
+ * merged or waiting to be merged at any time, so the memory used does not depend on the number of records.
+ */
+public class BatchMailMerge {
+    /**
+     * Reads the records to merge.
+     */
+    public interface IRecordSource {
+        /**
+         * Reads the next record into the values array, one value per column.
+         *
+         * @return False if there are no more records.
+         */
+        boolean read(Object[] values) throws Exception;
+    }
+
+    /**
+     * Receives the merged documents. Called from the executor threads, possibly concurrently.
+     */
+    public interface IDocumentSink {
+        void write(int recordIndex, Document doc) throws Exception;
+    }
+
+    /**
+     * Creates a new BatchMailMerge for the template.
+     *
+     * @param template    The template document. It is not modified.
+     * @param columnNames The names of the columns of the records, in the order of the values read by the record source.
+     */
+    public BatchMailMerge(Document template, String[] columnNames) throws Exception {
+        mTemplate = template;
+        mColumnCount = columnNames.length;
+
+        // Map the columns to the merge fields of the template once, instead of passing every column to every merge.
+        String[] templateFields = template.getMailMerge().getFieldNames();
+        ArrayList<String> fieldNames = new ArrayList<String>();
+        ArrayList<Integer> columnIndices = new ArrayList<Integer>();
+        for (int i = 0; i < columnNames.length; i++) {
+            if (isUsedByTemplate(columnNames[i], templateFields)) {
+                fieldNames.add(columnNames[i]);
+                columnIndices.add(i);
+            }
+        }
+
+        mFieldNames = fieldNames.toArray(new String[fieldNames.size()]);
+        mColumnIndices = new int[columnIndices.size()];
+        for (int i = 0; i < mColumnIndices.length; i++)
+            mColumnIndices[i] = columnIndices.get(i);
+    }
+
+    /**
+     * Gets the names of the columns which are merged into the template.
+     */
+    public String[] getFieldNames() {
+        return mFieldNames.clone();
+    }
+
+    /**
+     * Merges every record of the source into a clone of the template and passes the documents to the sink.
+     * If a record fails, the records not merged yet are skipped, and execute waits for the records being merged
+     * before throwing, so the sink is no longer written to once execute has returned or thrown.
+     *
+     * @param records     The records to merge.
+     * @param executor    The executor which merges the records and writes the documents to the sink.
+     * @param maxInFlight The maximum number of records being merged or waiting to be merged.
+     * @param sink        The sink which receives the merged documents.
+     * @return The number of documents produced.
+     */
+    public int execute(IRecordSource records, ExecutorService executor, int maxInFlight, final IDocumentSink sink) throws Exception {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("'maxInFlight' must be positive");
+
+        // Each record in flight has its own array of field values, which is reused once the record is merged.
+        // Taking an array from the pool blocks when maxInFlight records are in flight, so records do not pile up
+        // when merging is slower than reading.
+        final BlockingQueue<Object[]> fieldValuesPool = new ArrayBlockingQueue<Object[]>(maxInFlight);
+        for (int i = 0; i < maxInFlight; i++)
+            fieldValuesPool.add(new Object[mFieldNames.length]);
+
+        Object[] values = new Object[mColumnCount];
+        ArrayDeque<Future<Void>> pendingRecords = new ArrayDeque<Future<Void>>();
+        final AtomicBoolean aborted = new AtomicBoolean();
+        int recordCount = 0;
+        try {
+            while (records.read(values)) {
+                final Object[] fieldValues = fieldValuesPool.take();
+                for (int i = 0; i < mColumnIndices.length; i++)
+                    fieldValues[i] = values[mColumnIndices[i]];
+
+                final Document dstDoc;
+                try {
+                    // Clone the template instead of loading it from disk (for speed).
+                    dstDoc = (Document) mTemplate.deepClone(true);
+                } catch (Exception e) {
+                    fieldValuesPool.add(fieldValues);
+                    throw e;
+                }
+
+                final int recordIndex = recordCount++;
+                try {
+                    pendingRecords.add(executor.submit(new Callable<Void>() {
+                        public Void call() throws Exception {
+                            try {
+                                if (aborted.get())
+                                    return null;
+
+                                dstDoc.getMailMerge().execute(mFieldNames, fieldValues);
+                                sink.write(recordIndex, dstDoc);
+                                return null;
+                            } finally {
+                                Arrays.fill(fieldValues, null);
+                                fieldValuesPool.add(fieldValues);
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    // The record never runs, so it cannot return its array to the pool itself.
+                    Arrays.fill(fieldValues, null);
+                    fieldValuesPool.add(fieldValues);
+                    throw e;
+                }
+
+                // Report the first failure without waiting for the remaining records.
+                while (!pendingRecords.isEmpty() && pendingRecords.peek().isDone())
+                    getResult(pendingRecords.poll());
+            }
+
+            while (!pendingRecords.isEmpty())
+                getResult(pendingRecords.poll());
+        } finally {
+            // Records are only pending after a failure. Cancelling would not stop the records being merged,
+            // and a cancelled record cannot be waited for, so the remaining records skip the merge instead.
+            aborted.set(true);
+            for (Future<Void> pendingRecord : pendingRecords)
+                awaitCompletion(pendingRecord);
+        }
+
+        return recordCount;
+    }
+
+    /**
+     * Waits for the record to be merged or skipped, ignoring its failure as the first failure is being thrown.
+     */
+    private static void awaitCompletion(Future<Void> result) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                result.get();
+                break;
+            } catch (ExecutionException e) {
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static void getResult(Future<Void> result) throws Exception {
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Checks whether the template has a merge field for the column. Field names are compared the same way as
+     * mail merge does, ignoring case, and fields such as Image:Photo match the column Photo.
+     */
+    private static boolean isUsedByTemplate(String columnName, String[] templateFields) {
+        for (String fieldName : templateFields) {
+            if (fieldName.equalsIgnoreCase(columnName))
+                return true;
+
+            int prefixEnd = fieldName.indexOf(':');
+            if (prefixEnd >= 0 && fieldName.substring(prefixEnd + 1).equalsIgnoreCase(columnName))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Saves each merged document into a file of a directory.
+     */
+    public static class DirectorySink implements IDocumentSink {
+        /**
+         * @param directory        The directory to save the documents in.
+         * @param fileNameFormat   The format of the file names, the 1-based record number is passed as %d.
+         *                         The extension of the file name defines the format the document is saved in.
+         */
+        public DirectorySink(File directory, String fileNameFormat) {
+            mDirectory = directory;
+            mFileNameFormat = fileNameFormat;
+        }
+
+        public void write(int recordIndex, Document doc) throws Exception {
+            doc.save(new File(mDirectory, String.format(mFileNameFormat, recordIndex + 1)).getAbsolutePath());
+        }
+
+        private final File mDirectory;
+        private final String mFileNameFormat;
+    }
+
+    /**
+     * Saves all merged documents into a single ZIP archive. The documents are saved in parallel
+     * and only adding them to the archive is serialized.
+     */
+    public static class ZipSink implements IDocumentSink, Closeable {
+        /**
+         * @param stream          The stream to write the archive to. It is closed by close().
+         * @param entryNameFormat The format of the entry names, the 1-based record number is passed as %d.
+         * @param saveFormat      The format to save the documents in, one of the SaveFormat values.
+         */
+        public ZipSink(OutputStream stream, String entryNameFormat, int saveFormat) {
+            mZipStream = new ZipOutputStream(stream);
+            mEntryNameFormat = entryNameFormat;
+            mSaveFormat = saveFormat;
+        }
+
+        public void write(int recordIndex, Document doc) throws Exception {
+            ByteArrayOutputStream docStream = new ByteArrayOutputStream();
+            doc.save(docStream, mSaveFormat);
+
+            synchronized (mZipStream) {
+                mZipStream.putNextEntry(new ZipEntry(String.format(mEntryNameFormat, recordIndex + 1)));
+                docStream.writeTo(mZipStream);
+                mZipStream.closeEntry();
+            }
+        }
+
+        /**
+         * Finishes the archive. Must be called after execute has returned or thrown.
+         */
+        public void close() throws IOException {
+            synchronized (mZipStream) {
+                mZipStream.close();
+            }
+        }
+
+        private final ZipOutputStream mZipStream;
+        private final String mEntryNameFormat;
+        private final int mSaveFormat;
+    }
+
+    private final Document mTemplate;
+    private final int mColumnCount;
+    private final String[] mFieldNames;
+    private final int[] mColumnIndices;
+}
+//ExEnd:
@@ -7,7 +7,20 @@ import com.aspose.words.ImageFieldMergingArgs;
 import com.aspose.words.examples.Utils;
 import com.aspose.words.net.System.Data.DataTable;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.sql.Blob;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 //ExStart:
 public class InsertImagesFromADatabase {
@@ -39,6 +52,40 @@ public class InsertImagesFromADatabase {
         conn.close();
 
         doc.save(dataDir + "MailMerge.MergeImage Out.doc");
+
+        mergeImagesStreamed();
+    }
+
+    /**
+     * Merges the same data without loading the whole table into a DataTable. The rows are merged one at a time
+     * from a forward-only result set and each photo is read from the database only when its image field is merged.
+     * Identical photos are stored once and photos larger than 300x300 pixels are downscaled.
+     */
+    public static void mergeImagesStreamed() throws Exception {
+        Document doc = new Document(dataDir + "MailMerge.MergeImage.doc");
+
+        // Set up the event handler for image fields.
+        doc.getMailMerge().setFieldMergingCallback(new HandleMergeImageFieldFromBlobStream(300, 300));
+
+        Class.forName("net.ucanaccess.jdbc.UcanaccessDriver");
+        String connString = "jdbc:ucanaccess://" + dataDir + "Northwind.mdb";
+
+        // DSN-less DB connection.
+        java.sql.Connection conn = java.sql.DriverManager.getConnection(connString);
+        try {
+            // Create and execute a command. The rows are only read forward.
+            java.sql.Statement statement = conn.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(JdbcRecordCursor.DEFAULT_FETCH_SIZE);
+            java.sql.ResultSet resultSet = statement.executeQuery("SELECT * FROM Employees");
+
+            // Perform mail merge.
+            doc.getMailMerge().executeWithRegions(new JdbcMailMergeDataTable(resultSet, "Employees"));
+        } finally {
+            // Close the database.
+            conn.close();
+        }
+
+        doc.save(dataDir + "MailMerge.MergeImage Streamed Out.doc");
     }
 }
 
@@ -59,4 +106,132 @@ class HandleMergeImageFieldFromBlob implements IFieldMergingCallback {
         e.setImageStream(imageStream);
     }
 }
+
+/**
+ * Merges images read from binary database columns one at a time.
+ * <p>
+ * The field value can be a JdbcBinaryValue, a java.sql.Blob or a byte array. The image is read from the stream
+ * of the value only when the field is merged, and its SHA-256 digest is computed while it is read. Images which
+ * have recently been merged are reused by digest, so an image repeated in many records is kept in memory and
+ * downscaled only once. Only the most recently used images are kept, so that a merge of many distinct
+ * images does not keep all of them.
+ */
+class HandleMergeImageFieldFromBlobStream implements IFieldMergingCallback {
+    /**
+     * @param maxWidthPixels  The width of the frame the images are merged into, or 0 to keep images in their size.
+     * @param maxHeightPixels The height of the frame the images are merged into, or 0 to keep images in their size.
+     */
+    public HandleMergeImageFieldFromBlobStream(int maxWidthPixels, int maxHeightPixels) {
+        mMaxWidthPixels = maxWidthPixels;
+        mMaxHeightPixels = maxHeightPixels;
+    }
+
+    public void fieldMerging(FieldMergingArgs args) throws Exception {
+        // Do nothing.
+    }
+
+    public void imageFieldMerging(ImageFieldMergingArgs e) throws Exception {
+        InputStream stream = openStream(e.getFieldValue());
+        if (stream == null)
+            return;
+
+        // Read the image and compute its digest in a single pass over the stream.
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteArrayOutputStream imageBytes = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int readBytes;
+            while ((readBytes = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, readBytes);
+                imageBytes.write(buffer, 0, readBytes);
+            }
+        } finally {
+            stream.close();
+        }
+
+        String key = new java.math.BigInteger(1, digest.digest()).toString(16);
+        byte[] image = mImages.get(key);
+        if (image == null) {
+            image = downscale(imageBytes.toByteArray());
+            mImages.put(key, image);
+        }
+
+        // Now the mail merge engine will retrieve the image from the stream.
+        e.setImageStream(new ByteArrayInputStream(image));
+    }
+
+    private static InputStream openStream(Object fieldValue) throws Exception {
+        if (fieldValue instanceof JdbcBinaryValue)
+            return ((JdbcBinaryValue) fieldValue).openStream();
+        if (fieldValue instanceof Blob)
+            return ((Blob) fieldValue).getBinaryStream();
+        if (fieldValue instanceof byte[])
+            return new ByteArrayInputStream((byte[]) fieldValue);
+        return null;
+    }
+
+    /**
+     * Scales the image down to fit the frame, keeping its aspect ratio and format. Returns the original bytes if
+     * downscaling is off, the image already fits, or the image cannot be read by ImageIO.
+     */
+    private byte[] downscale(byte[] imageBytes) throws Exception {
+        if (mMaxWidthPixels <= 0 || mMaxHeightPixels <= 0)
+            return imageBytes;
+
+        ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes));
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+                return imageBytes;
+
+            ImageReader reader = readers.next();
+            String formatName = reader.getFormatName();
+            BufferedImage srcImage;
+            try {
+                reader.setInput(input);
+                srcImage = reader.read(0);
+            } catch (Exception e) {
+                // ImageIO fails on some images it has a reader for, e.g. CMYK JPEGs. These are inserted as they are.
+                return imageBytes;
+            } finally {
+                reader.dispose();
+            }
+
+            double scale = Math.min((double) mMaxWidthPixels / srcImage.getWidth(), (double) mMaxHeightPixels / srcImage.getHeight());
+            if (scale >= 1)
+                return imageBytes;
+
+            int width = Math.max(1, (int) (srcImage.getWidth() * scale));
+            int height = Math.max(1, (int) (srcImage.getHeight() * scale));
+            int imageType = srcImage.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+            BufferedImage dstImage = new BufferedImage(width, height, imageType);
+
+            Graphics2D g = dstImage.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.drawImage(srcImage, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+
+            ByteArrayOutputStream dstStream = new ByteArrayOutputStream();
+            if (!ImageIO.write(dstImage, formatName, dstStream) || dstStream.size() >= imageBytes.length)
+                return imageBytes;
+
+            return dstStream.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    private final int mMaxWidthPixels;
+    private final int mMaxHeightPixels;
+    private final LinkedHashMap<String, byte[]> mImages = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_CACHED_IMAGES;
+        }
+    };
+
+    private static final int MAX_CACHED_IMAGES = 64;
+}
 //ExEnd:
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.aspose.words.examples.mail_merge;
+
+import com.aspose.words.IMailMergeDataSource;
+import com.aspose.words.ref.Ref;
+
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+
+//ExStart:
+
+/**
+ * A custom mail merge data source that merges the rows of a JDBC ResultSet one at a time, without loading
+ * them into a DataTable first. The ResultSet can be forward-only, only the current row is used.
+ * <p>
+ * Values of binary columns (BLOB, BINARY, VARBINARY and LONGVARBINARY) are not read when the field is merged.
+ * Instead, a JdbcBinaryValue is returned which reads the value from the current row only when its stream is
+ * opened, e.g. by an image field merging callback.
+ */
+public class JdbcMailMergeDataTable implements IMailMergeDataSource {
+    /**
+     * Creates a new JdbcMailMergeDataTable for the result set.
+     *
+     * @param resultSet The result set positioned before the first row.
+     * @param tableName The name of the region the rows are merged into.
+     */
+    public JdbcMailMergeDataTable(ResultSet resultSet, String tableName) throws SQLException {
+        mResultSet = resultSet;
+        mTableName = tableName;
+
+        // The columns are looked up by name once, mail merge field names are not case sensitive.
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        mColumnTypes = new int[metaData.getColumnCount() + 1];
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            mColumnIndices.put(metaData.getColumnName(i).toUpperCase(), i);
+            mColumnTypes[i] = metaData.getColumnType(i);
+        }
+    }
+
+    /**
+     * The name of the data source. Used by Aspose.Words only when executing
+     * mail merge with repeatable regions.
+     */
+    public String getTableName() {
+        return mTableName;
+    }
+
+    /**
+     * Aspose.Words calls this method to get a value for every data field.
+     */
+    public boolean getValue(String fieldName, Ref<Object> fieldValue) throws Exception {
+        Integer column = mColumnIndices.get(fieldName.toUpperCase());
+        if (column == null) {
+            // Field does not exist in the data source, return false.
+            // No value will be merged for this field and it is left over in the document.
+            return false;
+        }
+
+        if (isBinary(mColumnTypes[column]))
+            fieldValue.set(new JdbcBinaryValue(mResultSet, column, mColumnTypes[column] == Types.BLOB));
+        else
+            fieldValue.set(mResultSet.getObject(column));
+
+        return true;
+    }
+
+    /**
+     * Moves to the next row of the result set.
+     */
+    public boolean moveNext() throws Exception {
+        return mResultSet.next();
+    }
+
+    /**
+     * Nested regions are not supported by this data source.
+     */
+    public IMailMergeDataSource getChildDataSource(String tableName) {
+        return null;
+    }
+
+    private static boolean isBinary(int columnType) {
+        switch (columnType) {
+            case Types.BLOB:
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private final ResultSet mResultSet;
+    private final String mTableName;
+    private final HashMap<String, Integer> mColumnIndices = new HashMap<String, Integer>();
+    private final int[] mColumnTypes;
+}
+
+/**
+ * The value of a binary column of the current row, read only when its stream is opened.
+ * The stream must be read before the result set moves to the next row.
+ */
+class JdbcBinaryValue {
+    JdbcBinaryValue(ResultSet resultSet, int column, boolean isBlob) {
+        mResultSet = resultSet;
+        mColumn = column;
+        mIsBlob = isBlob;
+    }
+
+    /**
+     * Opens a stream on the value, or returns null if the value is NULL.
+     */
+    public InputStream openStream() throws SQLException {
+        if (mIsBlob) {
+            java.sql.Blob blob = mResultSet.getBlob(mColumn);
+            return blob == null ? null : blob.getBinaryStream();
+        }
+
+        return mResultSet.getBinaryStream(mColumn);
+    }
+
+    private final ResultSet mResultSet;
+    private final int mColumn;
+    private final boolean mIsBlob;
+}
+//ExEnd:
@@ -0,0 +1,93 @@
+package com.aspose.words.examples.mail_merge;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//ExStart:
+/**
+ * Reads the rows of a query one at a time for a mail merge per row.
+ * <p>
+ * The query runs on a forward-only, read-only statement with a fetch size, so the driver can fetch the rows in
+ * batches instead of buffering the whole result as it may do for a scrollable statement. The column names are
+ * read from the metadata once, and each row is read into an array supplied by the caller, which can be reused
+ * for every row. Some drivers stream the rows only under extra conditions, e.g. PostgreSQL only when
+ * auto-commit is off and MySQL only with a fetch size of Integer.MIN_VALUE.
+ */
+public class JdbcRecordCursor implements BatchMailMerge.IRecordSource {
+    /**
+     * The number of rows fetched from the database at a time when no fetch size is specified.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    public JdbcRecordCursor(Connection connection, String query) throws SQLException {
+        this(connection, query, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Runs the query.
+     *
+     * @param fetchSize The number of rows fetched from the database at a time.
+     */
+    public JdbcRecordCursor(Connection connection, String query, int fetchSize) throws SQLException {
+        mStatement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            mStatement.setFetchSize(fetchSize);
+            mResultSet = mStatement.executeQuery(query);
+
+            ResultSetMetaData metaData = mResultSet.getMetaData();
+            mColumnNames = new String[metaData.getColumnCount()];
+            for (int i = 0; i < mColumnNames.length; i++)
+                mColumnNames[i] = metaData.getColumnName(i + 1);
+        } catch (SQLException e) {
+            mStatement.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the names of the columns, in the order of the values read by read.
+     */
+    public String[] getColumnNames() {
+        return mColumnNames.clone();
+    }
+
+    /**
+     * Creates an array which can hold the values of a row.
+     */
+    public Object[] createValues() {
+        return new Object[mColumnNames.length];
+    }
+
+    /**
+     * Moves to the next row and reads its values into the array.
+     *
+     * @return False if there are no more rows.
+     */
+    public boolean read(Object[] values) throws SQLException {
+        if (!mResultSet.next())
+            return false;
+
+        for (int i = 0; i < mColumnNames.length; i++)
+            values[i] = mResultSet.getObject(i + 1);
+        return true;
+    }
+
+    /**
+     * Closes the result set and the statement.
+     */
+    public void close() throws SQLException {
+        try {
+            mResultSet.close();
+        } finally {
+            mStatement.close();
+        }
+    }
+
+    private final Statement mStatement;
+    private final ResultSet mResultSet;
+    private final String[] mColumnNames;
+}
+//ExEnd:
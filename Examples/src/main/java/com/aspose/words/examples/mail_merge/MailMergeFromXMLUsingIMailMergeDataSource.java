@@ -31,6 +31,10 @@ public class MailMergeFromXMLUsingIMailMergeDataSource {
         // Note that this class also works with a single repeatable region (and any nested regions).
         // To merge multiple regions at the same time from a single XML data source, use the XmlMailMergeDataSet class.
         // e.g doc.getMailMerge().executeWithRegions(new XmlMailMergeDataSet(xmlData));
+        // For XML files too large to be loaded into a DOM, use XmlStreamingMailMergeDataTable or XmlStreamingMailMergeDataSet,
+        // and close the data set once the merge has finished, e.g
+        // XmlStreamingMailMergeDataSet dataSet = new XmlStreamingMailMergeDataSet(dataDir + "Customers.xml");
+        // try { doc.getMailMerge().executeWithRegions(dataSet); } finally { dataSet.close(); }
         doc.getMailMerge().execute(new XmlMailMergeDataTable(xmlData, "customer"));
 
         // Save the output document.
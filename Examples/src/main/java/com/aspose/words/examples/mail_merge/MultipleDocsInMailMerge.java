@@ -21,28 +21,33 @@ public class MultipleDocsInMailMerge {
         // Create a connection to the database
         createConnection(dataDir);
 
-        // Open the database connection.
-        ResultSet rs = executeQuery("SELECT * FROM Customers");
+        // Open the database connection and read the rows one at a time.
+        JdbcRecordCursor cursor = new JdbcRecordCursor(mConnection, "SELECT * FROM Customers");
 
-        // Open the template document.
-        Document doc = new Document(dataDir + srcDoc);
+        try {
+            // Open the template document.
+            Document doc = new Document(dataDir + srcDoc);
 
-        // A record of how many documents that have been generated so far.
-        int counter = 1;
+            // The column names are read once and the same array holds the values of every row.
+            String[] columnNames = cursor.getColumnNames();
+            Object[] values = cursor.createValues();
 
-        // Loop though all records in the data source.
-        while (rs.next()) {
-            // Clone the template instead of loading it from disk (for speed).
-            Document dstDoc = (Document) doc.deepClone(true);
+            // A record of how many documents that have been generated so far.
+            int counter = 1;
 
-            // Extract the data from the current row of the ResultSet into a Hashtable.
-            Hashtable dataMap = getRowData(rs);
+            // Loop though all records in the data source.
+            while (cursor.read(values)) {
+                // Clone the template instead of loading it from disk (for speed).
+                Document dstDoc = (Document) doc.deepClone(true);
 
-            // Execute mail merge.
-            dstDoc.getMailMerge().execute(keySetToArray(dataMap), dataMap.values().toArray());
+                // Execute mail merge.
+                dstDoc.getMailMerge().execute(columnNames, values);
 
-            // Save the document.
-            dstDoc.save(MessageFormat.format(dataDir + "TestFile Out {0}.doc", counter++));
+                // Save the document.
+                dstDoc.save(MessageFormat.format(dataDir + "TestFile Out {0}.doc", counter++));
+            }
+        } finally {
+            cursor.close();
         }
     }
 
@@ -90,7 +95,10 @@ public class MultipleDocsInMailMerge {
      * Utility function that creates a statement to the database.
      */
     public static Statement createStatement() throws Exception {
-        return mConnection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        // The rows are only read forward, a scrollable statement could make the driver buffer all of them.
+        Statement statement = mConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(JdbcRecordCursor.DEFAULT_FETCH_SIZE);
+        return statement;
     }
     //ExEnd:
 }
\ No newline at end of file
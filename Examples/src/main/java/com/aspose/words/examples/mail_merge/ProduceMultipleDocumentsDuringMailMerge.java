@@ -3,9 +3,12 @@ package com.aspose.words.examples.mail_merge;
 import com.aspose.words.Document;
 import com.aspose.words.examples.Utils;
 
+import java.io.File;
 import java.sql.*;
 import java.text.MessageFormat;
 import java.util.Hashtable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 //ExStart: ProduceMultipleDocumentsDuringMailMerge
 public class ProduceMultipleDocumentsDuringMailMerge {
@@ -18,29 +21,63 @@ public class ProduceMultipleDocumentsDuringMailMerge {
     }
 
     public static void produceMultipleDocuments(String dataDir, String srcDoc) throws Exception {
-        // Open the database connection.
-        ResultSet rs = getData(dataDir, "SELECT * FROM Customers");
-
-        // Open the template document.
-        Document doc = new Document(dataDir + srcDoc);
-
-        // A record of how many documents that have been generated so far.
-        int counter = 1;
-
-        // Loop though all records in the data source.
-        while (rs.next()) {
-            // Clone the template instead of loading it from disk (for speed).
-            Document dstDoc = (Document) doc.deepClone(true);
-
-            // Extract the data from the current row of the ResultSet into a Hashtable.
-            Hashtable dataMap = getRowData(rs);
-
-            // Execute mail merge.
-            dstDoc.getMailMerge().execute(keySetToArray(dataMap), dataMap.values().toArray());
+        // Open the database connection and read the rows one at a time.
+        Connection connection = getConnection(dataDir);
+        JdbcRecordCursor cursor = new JdbcRecordCursor(connection, "SELECT * FROM Customers");
+
+        try {
+            // Open the template document.
+            Document doc = new Document(dataDir + srcDoc);
+
+            // The column names are read once and the same array holds the values of every row.
+            String[] columnNames = cursor.getColumnNames();
+            Object[] values = cursor.createValues();
+
+            // A record of how many documents that have been generated so far.
+            int counter = 1;
+
+            // Loop though all records in the data source.
+            while (cursor.read(values)) {
+                // Clone the template instead of loading it from disk (for speed).
+                Document dstDoc = (Document) doc.deepClone(true);
+
+                // Execute mail merge.
+                dstDoc.getMailMerge().execute(columnNames, values);
+
+                // Save the document.
+                dstDoc.save(MessageFormat.format(dataDir + "TestFile Out {0}.doc", counter++));
+                System.out.println("Counter : ");
+            }
+        } finally {
+            cursor.close();
+            connection.close();
+        }
+    }
 
-            // Save the document.
-            dstDoc.save(MessageFormat.format(dataDir + "TestFile Out {0}.doc", counter++));
-            System.out.println("Counter : ");
+    /**
+     * Produces the same documents as produceMultipleDocuments, but merges and saves them on all processor cores
+     * using BatchMailMerge. The merge fields of the template and the columns of the ResultSet are matched once.
+     */
+    public static void produceMultipleDocumentsInParallel(String dataDir, String srcDoc) throws Exception {
+        // Open the database connection and read the rows one at a time.
+        Connection connection = getConnection(dataDir);
+        JdbcRecordCursor cursor = new JdbcRecordCursor(connection, "SELECT * FROM Customers");
+
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            // Open the template document.
+            Document doc = new Document(dataDir + srcDoc);
+
+            BatchMailMerge batchMerge = new BatchMailMerge(doc, cursor.getColumnNames());
+            int count = batchMerge.execute(cursor, executor, threadCount * 2,
+                    new BatchMailMerge.DirectorySink(new File(dataDir), "TestFile Out %d.doc"));
+
+            System.out.println("Documents produced: " + count);
+        } finally {
+            executor.shutdown();
+            cursor.close();
+            connection.close();
         }
     }
 
@@ -71,16 +108,24 @@ public class ProduceMultipleDocumentsDuringMailMerge {
      * Utility function that creates a connection to the Database.
      */
     public static ResultSet getData(String dataDir, String query) throws Exception {
+        Connection connection = getConnection(dataDir);
+
+        // The rows are only read forward, a scrollable statement could make the driver buffer all of them.
+        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(JdbcRecordCursor.DEFAULT_FETCH_SIZE);
 
+        return statement.executeQuery(query);
+    }
+
+    /**
+     * Utility function that creates a connection to the Database.
+     */
+    public static Connection getConnection(String dataDir) throws Exception {
         Class.forName("net.ucanaccess.jdbc.UcanaccessDriver");
         String connectionString = "jdbc:ucanaccess://" + dataDir + "Customers.mdb";
 
         // DSN-less DB connection.
-        Connection connection = DriverManager.getConnection(connectionString);
-
-        Statement statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-
-        return statement.executeQuery(query);
+        return DriverManager.getConnection(connectionString);
     }
 }
 //ExEnd: ProduceMultipleDocumentsDuringMailMerge
\ No newline at end of file
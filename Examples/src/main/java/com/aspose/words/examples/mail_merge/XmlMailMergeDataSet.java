@@ -3,6 +3,8 @@ package com.aspose.words.examples.mail_merge;
 import com.aspose.words.IMailMergeDataSource;
 import com.aspose.words.IMailMergeDataSourceRoot;
 
+import java.util.HashMap;
+
 //ExStart:
 public class XmlMailMergeDataSet implements IMailMergeDataSourceRoot {
     /**
@@ -12,13 +14,26 @@ public class XmlMailMergeDataSet implements IMailMergeDataSourceRoot {
      * @param xmlDoc The DOM object which contains the parsed XML data.
      */
     public XmlMailMergeDataSet(org.w3c.dom.Document xmlDoc) {
+        this(xmlDoc, false);
+    }
+
+    /**
+     * Creates a new XmlMailMergeDataSet for the specified XML document.
+     *
+     * @param xmlDoc           The DOM object which contains the parsed XML data.
+     * @param useAccessorPlans True to look fields up by the position of the child elements found in the first record
+     *                         of each table. The plans are shared by all tables of the same name in all regions.
+     */
+    public XmlMailMergeDataSet(org.w3c.dom.Document xmlDoc, boolean useAccessorPlans) {
         mXmlDoc = xmlDoc;
+        mAccessorPlans = useAccessorPlans ? new HashMap<String, XmlFieldAccessorPlan>() : null;
     }
 
     public IMailMergeDataSource getDataSource(String tableName) throws Exception {
-        return new XmlMailMergeDataTable(mXmlDoc, tableName);
+        return new XmlMailMergeDataTable(mXmlDoc, tableName, mAccessorPlans);
     }
 
     private org.w3c.dom.Document mXmlDoc;
+    private HashMap<String, XmlFieldAccessorPlan> mAccessorPlans;
 }
 //ExEnd:
\ No newline at end of file
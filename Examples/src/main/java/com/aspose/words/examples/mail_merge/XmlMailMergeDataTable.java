@@ -9,6 +9,7 @@ import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathFactory;
+import java.util.ArrayList;
 import java.util.HashMap;
 
 //ExStart:
@@ -33,14 +34,40 @@ public class XmlMailMergeDataTable implements IMailMergeDataSource {
      *                  the region is extracted from.
      */
     public XmlMailMergeDataTable(org.w3c.dom.Document xmlDoc, String tableName) throws Exception {
-        this(xmlDoc.getDocumentElement(), tableName);
+        this(xmlDoc.getDocumentElement(), tableName, new HashMap(), XPathFactory.newInstance().newXPath(), null);
+    }
+
+    /**
+     * Creates a new XmlMailMergeDataSource for the specified XML document and
+     * table name.
+     *
+     * @param xmlDoc            The DOM object which contains the parsed XML data.
+     * @param tableName         The name of the element in the data source where the data of
+     *                          the region is extracted from.
+     * @param useAccessorPlans  True to look fields up by the position of the child elements found in the
+     *                          first record of each table instead of evaluating an XPath expression for every field.
+     */
+    public XmlMailMergeDataTable(org.w3c.dom.Document xmlDoc, String tableName, boolean useAccessorPlans) throws Exception {
+        this(xmlDoc, tableName, useAccessorPlans ? new HashMap<String, XmlFieldAccessorPlan>() : null);
+    }
+
+    /**
+     * Constructor that is called by XmlMailMergeDataSet to share the accessor plans between its tables.
+     */
+    XmlMailMergeDataTable(org.w3c.dom.Document xmlDoc, String tableName, HashMap<String, XmlFieldAccessorPlan> accessorPlans) throws Exception {
+        this(xmlDoc.getDocumentElement(), tableName, new HashMap(), XPathFactory.newInstance().newXPath(), accessorPlans);
     }
 
     /**
      * Private constructor that is also called by GetChildDataSource.
+     * Child tables share the expression cache and the accessor plans of their parent.
      */
-    private XmlMailMergeDataTable(Node rootNode, String tableName) throws Exception {
+    private XmlMailMergeDataTable(Node rootNode, String tableName, HashMap expressionSet, XPath xPath,
+                                  HashMap<String, XmlFieldAccessorPlan> accessorPlans) throws Exception {
         mTableName = tableName;
+        mExpressionSet = expressionSet;
+        mXPath = xPath;
+        mAccessorPlans = accessorPlans;
 
         // Get the first element on this level matching the table name.
         mCurrentNode = (Node) retrieveExpression("./" + tableName).evaluate(rootNode, XPathConstants.NODE);
@@ -58,8 +85,10 @@ public class XmlMailMergeDataTable implements IMailMergeDataSource {
      * Aspose.Words calls this method to get a value for every data field.
      */
     public boolean getValue(String fieldName, Ref<Object> fieldValue) throws Exception {
-        // Attempt to retrieve the child node matching the field name by using XPath.
-        Node value = (Node) retrieveExpression(fieldName).evaluate(mCurrentNode, XPathConstants.NODE);
+        // Attempt to retrieve the child node matching the field name by using the accessor plan or XPath.
+        Node value = (mAccessorPlans != null && XmlFieldAccessorPlan.isElementName(fieldName))
+                ? findFieldElement(fieldName)
+                : (Node) retrieveExpression(fieldName).evaluate(mCurrentNode, XPathConstants.NODE);
         // We also look for the field name in attributes of the element node.
         Element nodeAsElement = (Element) mCurrentNode;
 
@@ -91,6 +120,7 @@ public class XmlMailMergeDataTable implements IMailMergeDataSource {
             if (!mIsFirstRecord) {
                 // Find the next node which is an element and matches the table name represented by this class.
                 // This skips any text nodes and any elements which belong to a different table.
+                mCurrentChildElements = null;
                 do {
                     mCurrentNode = mCurrentNode.getNextSibling();
                 }
@@ -118,7 +148,49 @@ public class XmlMailMergeDataTable implements IMailMergeDataSource {
      * </Tables>
      */
     public IMailMergeDataSource getChildDataSource(String tableName) throws Exception {
-        return new XmlMailMergeDataTable(mCurrentNode, tableName);
+        return new XmlMailMergeDataTable(mCurrentNode, tableName, mExpressionSet, mXPath, mAccessorPlans);
+    }
+
+    /**
+     * Finds the first child element of the current record with the specified name.
+     * The position of the element in the first record is tried first, the child elements are scanned
+     * only if the current record is laid out differently.
+     */
+    private Element findFieldElement(String fieldName) {
+        ArrayList<Element> childElements = getCurrentChildElements();
+
+        XmlFieldAccessorPlan plan = mAccessorPlans.get(mTableName);
+        if (plan == null) {
+            // The first record of the table defines the plan for all tables of the same name.
+            plan = new XmlFieldAccessorPlan(childElements);
+            mAccessorPlans.put(mTableName, plan);
+        }
+
+        int index = plan.getElementIndex(fieldName);
+        if (index >= 0 && index < childElements.size() && childElements.get(index).getNodeName().equals(fieldName)) {
+            return childElements.get(index);
+        }
+
+        for (Element childElement : childElements) {
+            if (childElement.getNodeName().equals(fieldName)) {
+                return childElement;
+            }
+        }
+
+        return null;
+    }
+
+    private ArrayList<Element> getCurrentChildElements() {
+        if (mCurrentChildElements == null) {
+            mCurrentChildElements = new ArrayList<Element>();
+            for (Node child = mCurrentNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE) {
+                    mCurrentChildElements.add((Element) child);
+                }
+            }
+        }
+
+        return mCurrentChildElements;
     }
 
     private boolean isEof() {
@@ -147,7 +219,51 @@ public class XmlMailMergeDataTable implements IMailMergeDataSource {
     private Node mCurrentNode;
     private boolean mIsFirstRecord = true;
     private final String mTableName;
-    private final HashMap mExpressionSet = new HashMap();
-    private final XPath mXPath = XPathFactory.newInstance().newXPath();
+    private final HashMap mExpressionSet;
+    private final XPath mXPath;
+    private final HashMap<String, XmlFieldAccessorPlan> mAccessorPlans;
+    private ArrayList<Element> mCurrentChildElements;
+}
+
+/**
+ * Maps field names to the position of the matching child element in the first record of a table.
+ */
+class XmlFieldAccessorPlan {
+    public XmlFieldAccessorPlan(ArrayList<Element> childElements) {
+        for (int i = 0; i < childElements.size(); i++) {
+            String name = childElements.get(i).getNodeName();
+            if (!mElementIndices.containsKey(name)) {
+                mElementIndices.put(name, i);
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the first child element with the specified name, or -1 if the first record has none.
+     */
+    public int getElementIndex(String fieldName) {
+        Integer index = mElementIndices.get(fieldName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns true if the field name is a plain element name rather than an XPath expression.
+     */
+    public static boolean isElementName(String fieldName) {
+        if (fieldName.length() == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.' && c != ':') {
+                return false;
+            }
+        }
+
+        return !Character.isDigit(fieldName.charAt(0)) && fieldName.charAt(0) != '.' && fieldName.charAt(0) != '-';
+    }
+
+    private final HashMap<String, Integer> mElementIndices = new HashMap<String, Integer>();
 }
 //ExEnd:
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.aspose.words.examples.mail_merge;
+
+import com.aspose.words.IMailMergeDataSource;
+import com.aspose.words.IMailMergeDataSourceRoot;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+//ExStart:
+public class XmlStreamingMailMergeDataSet implements IMailMergeDataSourceRoot, Closeable {
+    /**
+     * Creates a new XmlStreamingMailMergeDataSet for the specified XML file. All regions in the document can be
+     * merged at once using this class. Each region reads the file with its own stream, so the file is never
+     * loaded into memory as a whole.
+     * <p>
+     * Aspose.Words does not close the data sources, and a region whose merge stops early leaves its file open.
+     * Call close once the mail merge has finished, e.g. in a finally block.
+     *
+     * @param xmlFileName The name of the file which contains the XML data.
+     */
+    public XmlStreamingMailMergeDataSet(String xmlFileName) {
+        mXmlFileName = xmlFileName;
+    }
+
+    public IMailMergeDataSource getDataSource(String tableName) throws Exception {
+        XmlStreamingMailMergeDataTable table =
+                new XmlStreamingMailMergeDataTable(new BufferedInputStream(new FileInputStream(mXmlFileName)), tableName);
+        mTables.add(table);
+        return table;
+    }
+
+    /**
+     * Closes the files of all regions which have been read.
+     */
+    public void close() throws IOException {
+        IOException error = null;
+        for (XmlStreamingMailMergeDataTable table : mTables) {
+            try {
+                table.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+
+        mTables.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private String mXmlFileName;
+    private final ArrayList<XmlStreamingMailMergeDataTable> mTables = new ArrayList<XmlStreamingMailMergeDataTable>();
+}
+//ExEnd:
@@ -0,0 +1,321 @@
+package com.aspose.words.examples.mail_merge;
+
+import com.aspose.words.IMailMergeDataSource;
+import com.aspose.words.ref.Ref;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+//ExStart:
+
+/**
+ * A custom mail merge data source that merges data from an XML document without
+ * loading the whole document into memory. Unlike XmlMailMergeDataTable, the XML
+ * is read with a StAX stream reader and only the record being merged is kept in
+ * memory, so the memory used does not depend on the size of the XML document.
+ * <p>
+ * Records are the elements named after the table directly under the document
+ * element. The child elements and attributes of a record are its fields. Child
+ * regions are merged from the elements of the current record, the same way as
+ * XmlMailMergeDataTable does.
+ */
+public class XmlStreamingMailMergeDataTable implements IMailMergeDataSource, Closeable {
+    /**
+     * Creates a new XmlStreamingMailMergeDataTable which reads the records of the
+     * specified table from the stream.
+     *
+     * @param xmlStream The stream which contains the XML data. It is closed after the
+     *                  last record is read or when the data source is closed.
+     * @param tableName The name of the elements in the data source where the data of
+     *                  the region is extracted from.
+     */
+    public XmlStreamingMailMergeDataTable(InputStream xmlStream, String tableName) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        mTableName = tableName;
+        mXmlStream = xmlStream;
+        try {
+            mReader = factory.createXMLStreamReader(xmlStream);
+        } catch (XMLStreamException e) {
+            try {
+                xmlStream.close();
+            } catch (IOException ignored) {
+                // The parse error is reported instead.
+            }
+            throw e;
+        }
+        mChildRecords = null;
+    }
+
+    /**
+     * Private constructor that is called by GetChildDataSource.
+     */
+    private XmlStreamingMailMergeDataTable(Iterator<XmlRecord> childRecords, String tableName) {
+        mTableName = tableName;
+        mXmlStream = null;
+        mReader = null;
+        mChildRecords = childRecords;
+    }
+
+    /**
+     * The name of the data source. Used by Aspose.Words only when executing
+     * mail merge with repeatable regions.
+     */
+    public String getTableName() {
+        return mTableName;
+    }
+
+    /**
+     * Aspose.Words calls this method to get a value for every data field.
+     */
+    public boolean getValue(String fieldName, Ref<Object> fieldValue) {
+        if (mCurrentRecord == null) {
+            return false;
+        }
+
+        // Look for a child element matching the field name first, then for an attribute of the record.
+        String value = mCurrentRecord.getFieldValue(fieldName);
+        if (value == null) {
+            value = mCurrentRecord.getAttribute(fieldName);
+        }
+
+        if (value == null) {
+            // Field does not exist in the data source, return false.
+            // No value will be merged for this field and it is left over in the document.
+            return false;
+        }
+
+        fieldValue.set(value);
+        return true;
+    }
+
+    /**
+     * Moves to the next record. For the top level table, this reads the next record
+     * element from the stream and releases the previous one.
+     */
+    public boolean moveNext() throws Exception {
+        if (mReader != null) {
+            mCurrentRecord = readNextRecord();
+        } else {
+            mCurrentRecord = null;
+            while (mChildRecords.hasNext()) {
+                XmlRecord record = mChildRecords.next();
+                if (record.getName().equals(mTableName)) {
+                    mCurrentRecord = record;
+                    break;
+                }
+            }
+        }
+
+        return mCurrentRecord != null;
+    }
+
+    /**
+     * Returns the data of the child table nested in the current record.
+     */
+    public IMailMergeDataSource getChildDataSource(String tableName) {
+        ArrayList<XmlRecord> children = mCurrentRecord == null ? new ArrayList<XmlRecord>() : mCurrentRecord.getChildren();
+        return new XmlStreamingMailMergeDataTable(children.iterator(), tableName);
+    }
+
+    /**
+     * Stops reading the stream and closes it. Called automatically once the last record is read.
+     */
+    public void close() throws IOException {
+        if (mReader == null || mIsClosed) {
+            return;
+        }
+
+        mIsClosed = true;
+        try {
+            mReader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            mXmlStream.close();
+        }
+    }
+
+    private XmlRecord readNextRecord() throws XMLStreamException, IOException {
+        if (mIsClosed) {
+            return null;
+        }
+
+        try {
+            while (mReader.hasNext()) {
+                switch (mReader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        // Records are the children of the document element, other elements are skipped.
+                        if (mDepth == 1 && getElementName(mReader).equals(mTableName)) {
+                            return readElement(mReader);
+                        }
+
+                        mDepth++;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        mDepth--;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            close();
+            throw e;
+        }
+
+        close();
+        return null;
+    }
+
+    /**
+     * Reads the element the reader is positioned at, including all its descendants.
+     * The reader is left at the end of the element.
+     */
+    private static XmlRecord readElement(XMLStreamReader reader) throws XMLStreamException {
+        XmlRecord record = new XmlRecord(getElementName(reader));
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+            String name = (prefix == null || prefix.length() == 0) ? reader.getAttributeLocalName(i) : prefix + ":" + reader.getAttributeLocalName(i);
+            record.addAttribute(name, reader.getAttributeValue(i));
+        }
+
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    record.addChild(readElement(reader));
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    record.addText(reader.getText());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return record;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static String getElementName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return (prefix == null || prefix.length() == 0) ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+    }
+
+    /**
+     * Instance variables.
+     */
+    private final String mTableName;
+    private final InputStream mXmlStream;
+    private final XMLStreamReader mReader;
+    private final Iterator<XmlRecord> mChildRecords;
+    private XmlRecord mCurrentRecord;
+    private int mDepth;
+    private boolean mIsClosed;
+}
+
+/**
+ * An element read from the XML data. Holds the values of its child elements and
+ * attributes by name, and the child elements themselves for nested regions.
+ * The text and the child elements are kept in document order, so the text of
+ * each element is stored once and the text content of an element including its
+ * descendants is only put together when it is merged.
+ */
+class XmlRecord {
+    public XmlRecord(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Gets the text of the element and all its descendants, the same as Node.getTextContent.
+     */
+    public String getTextContent() {
+        // Most fields are elements with text only, which need no copy.
+        if (mContent.size() == 1 && mContent.get(0) instanceof String) {
+            return (String) mContent.get(0);
+        }
+
+        StringBuilder text = new StringBuilder();
+        appendTextContent(text);
+        return text.toString();
+    }
+
+    public void addText(String text) {
+        mContent.add(text);
+    }
+
+    public ArrayList<XmlRecord> getChildren() {
+        return mChildren;
+    }
+
+    public void addChild(XmlRecord child) {
+        mChildren.add(child);
+        mContent.add(child);
+
+        // Like an XPath lookup, a field refers to the first child element with the name.
+        if (!mFields.containsKey(child.getName())) {
+            mFields.put(child.getName(), child);
+        }
+    }
+
+    public String getAttribute(String name) {
+        return mAttributes == null ? null : mAttributes.get(name);
+    }
+
+    public void addAttribute(String name, String value) {
+        if (mAttributes == null) {
+            mAttributes = new HashMap<String, String>();
+        }
+
+        mAttributes.put(name, value);
+    }
+
+    /**
+     * Returns the text content of the child element with the specified name, or null if there is no such element.
+     * Names separated by '/' select nested elements.
+     */
+    public String getFieldValue(String fieldName) {
+        XmlRecord field = this;
+        for (String name : fieldName.split("/")) {
+            field = field.mFields.get(name);
+            if (field == null) {
+                return null;
+            }
+        }
+
+        return field.getTextContent();
+    }
+
+    private void appendTextContent(StringBuilder text) {
+        for (Object content : mContent) {
+            if (content instanceof String) {
+                text.append((String) content);
+            } else {
+                ((XmlRecord) content).appendTextContent(text);
+            }
+        }
+    }
+
+    private final String mName;
+    // The text segments and the child elements of the element, in document order.
+    private final ArrayList<Object> mContent = new ArrayList<Object>();
+    private HashMap<String, String> mAttributes;
+    private final HashMap<String, XmlRecord> mFields = new HashMap<String, XmlRecord>();
+    private final ArrayList<XmlRecord> mChildren = new ArrayList<XmlRecord>();
+}
+//ExEnd:
@@ -33,6 +33,38 @@ public class ExtractContentBetweenBookmarks {
         dstDoc = generateDocument(doc, extractedNodesExclusive);
         dstDoc.save(dataDir + "output.doc");
 //ExEnd:ExtractContentBetweenBookmarks
+
+//ExStart:ExtractContentOfAllBookmarks
+        // Extract the content of every bookmark in one pass over the document, each bookmark into its own document.
+        ArrayList<Node[]> ranges = new ArrayList<Node[]>();
+        for (Bookmark eachBookmark : doc.getRange().getBookmarks())
+            ranges.add(new Node[]{eachBookmark.getBookmarkStart(), eachBookmark.getBookmarkEnd()});
+
+        ArrayList<Document> bookmarkDocs = ExtractContentBetweenParagraphs.extractContentRanges(ranges, true);
+        for (int i = 0; i < bookmarkDocs.size(); i++)
+            bookmarkDocs.get(i).save(dataDir + "TestFile.Bookmark" + i + " Out.doc");
+//ExEnd:ExtractContentOfAllBookmarks
+
+        // Check that extracting many bookmarks at once gives the same content as extracting them one by one,
+        // including bookmarks which start and end inside paragraphs.
+        Document bookmarkDoc = ExtractContentBetweenParagraphs.createBookmarkSample();
+        ArrayList<Node[]> sampleRanges = new ArrayList<Node[]>();
+        for (Bookmark eachBookmark : bookmarkDoc.getRange().getBookmarks())
+            sampleRanges.add(new Node[]{eachBookmark.getBookmarkStart(), eachBookmark.getBookmarkEnd()});
+
+        for (boolean isInclusive : new boolean[]{true, false}) {
+            ArrayList<Document> rangeDocs = ExtractContentBetweenParagraphs.extractContentRanges(sampleRanges, isInclusive);
+            StringBuilder allExpected = new StringBuilder();
+            for (int i = 0; i < sampleRanges.size(); i++) {
+                String expected = ExtractContentBetweenParagraphs.getParagraphsText(generateDocument(bookmarkDoc,
+                        extractContent(sampleRanges.get(i)[0], sampleRanges.get(i)[1], isInclusive)));
+                checkSameContent(expected, ExtractContentBetweenParagraphs.getParagraphsText(rangeDocs.get(i)), isInclusive);
+                allExpected.append(expected);
+            }
+
+            Document allRangesDoc = ExtractContentBetweenParagraphs.extractContentRangesToDocument(sampleRanges, isInclusive);
+            checkSameContent(allExpected.toString(), ExtractContentBetweenParagraphs.getParagraphsText(allRangesDoc), isInclusive);
+        }
         System.out.println("Content extracted between bookmarks successfully.");
     }
 
@@ -108,6 +140,12 @@ public class ExtractContentBetweenBookmarks {
         return nodes;
     }
 
+    private static void checkSameContent(String expected, String actual, boolean isInclusive) {
+        if (!expected.equals(actual))
+            throw new IllegalStateException("Different content extracted" + (isInclusive ? " inclusive" : " exclusive")
+                    + ":\n" + expected + "---\n" + actual);
+    }
+
     /**
      * Checks the input parameters are correct and can be used. Throws an exception if there is any problem.
      */
@@ -4,6 +4,10 @@ import com.aspose.words.*;
 import com.aspose.words.examples.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 
 public class ExtractContentBetweenParagraphs {
 	public static void main(String[] args) throws Exception {
@@ -24,6 +28,26 @@ public class ExtractContentBetweenParagraphs {
 		Document dstDoc = generateDocument(doc, extractedNodes);
 		dstDoc.save(dataDir + "output.doc");
 		//ExEnd:ExtractContentBetweenParagraphs
+
+		//ExStart:ExtractContentBetweenParagraphsDirect
+		// The same content extracted straight into a new document, without cloning the whole paragraphs first.
+		dstDoc = extractContentToDocument(startPara, endPara, true);
+		dstDoc.save(dataDir + "output_direct.doc");
+		//ExEnd:ExtractContentBetweenParagraphsDirect
+
+		// Check that both ways extract the same content from bookmarks which start and end inside paragraphs.
+		Document bookmarkDoc = createBookmarkSample();
+		for (Bookmark bookmark : bookmarkDoc.getRange().getBookmarks()) {
+			for (boolean isInclusive : new boolean[]{true, false}) {
+				String expected = getParagraphsText(generateDocument(bookmarkDoc,
+						extractContent(bookmark.getBookmarkStart(), bookmark.getBookmarkEnd(), isInclusive)));
+				String actual = getParagraphsText(
+						extractContentToDocument(bookmark.getBookmarkStart(), bookmark.getBookmarkEnd(), isInclusive));
+				if (!expected.equals(actual))
+					throw new IllegalStateException("Different content extracted from " + bookmark.getName()
+							+ (isInclusive ? " inclusive" : " exclusive") + ":\n" + expected + "---\n" + actual);
+			}
+		}
 		System.out.println("Content extracted between the paragraphs successfully.");
 	}
 
@@ -72,19 +96,7 @@ public class ExtractContentBetweenParagraphs {
 	    // Method is little more complex than a regular extractor as we need to factor in extracting using inline nodes, fields, bookmarks etc as to make it really useful.
 	    while (isExtracting) {
 	        // Clone the current node and its children to obtain a copy.
-	        /*System.out.println(currNode.getNodeType());
-	        if(currNode.getNodeType() == NodeType.EDITABLE_RANGE_START
-	                || currNode.getNodeType() == NodeType.EDITABLE_RANGE_END)
-	        {
-	            currNode = currNode.nextPreOrder(currNode.getDocument());
-	        }*/
-	        System.out.println(currNode);
-	        System.out.println(endNode);
-
 	        CompositeNode cloneNode = null;
-	        ///cloneNode = (CompositeNode) currNode.deepClone(true);
-
-	        Node inlineNode = null;
 	        if(currNode.isComposite())
 	        {
 	            cloneNode = (CompositeNode) currNode.deepClone(true);
@@ -133,6 +145,277 @@ public class ExtractContentBetweenParagraphs {
 	}
 	//ExEnd:ExtractContent
 	
+	/**
+	 * Extracts the same content as extractContent into a new document.
+	 *
+	 * @see #extractContentInto(Node, Node, boolean, NodeImporter, Body)
+	 */
+	//ExStart:ExtractContentToDocument
+	public static Document extractContentToDocument(Node startNode, Node endNode, boolean isInclusive) throws Exception {
+		// Create a blank document.
+		Document dstDoc = new Document();
+		// Remove the first paragraph from the empty document.
+		dstDoc.getFirstSection().getBody().removeAllChildren();
+
+		NodeImporter importer = new NodeImporter(startNode.getDocument(), dstDoc, ImportFormatMode.KEEP_SOURCE_FORMATTING);
+		extractContentInto(startNode, endNode, isInclusive, importer, dstDoc.getFirstSection().getBody());
+		return dstDoc;
+	}
+
+	/**
+	 * Extracts the same content as extractContent, but imports it straight into the destination body instead of
+	 * returning copies of the nodes.
+	 * <p>
+	 * Only the nodes that end up in the destination are copied. Block level nodes fully between the markers are
+	 * imported as they are, without cloning them first. A paragraph split by an inline marker is imported without
+	 * its children and then only the children within the range are imported into it, so the rest of the paragraph
+	 * is never copied.
+	 *
+	 * @param startNode   The node which defines where to start the extraction from the document.
+	 * @param endNode     The node which defines where to stop the extraction from the document.
+	 * @param isInclusive Should the marker nodes be included.
+	 * @param importer    The importer from the document of the markers to the document of the destination body.
+	 * @param dstBody     The body the extracted nodes are appended to.
+	 */
+	public static void extractContentInto(Node startNode, Node endNode, boolean isInclusive, NodeImporter importer, Body dstBody) throws Exception {
+		// First check that the nodes passed to this method are valid for use.
+		verifyParameterNodes(startNode, endNode);
+
+		importRange(startNode, endNode, isInclusive, importer, dstBody);
+	}
+
+	/**
+	 * Extracts the content of many ranges of the same document, one new document per range. Does the same as
+	 * calling extractContentToDocument for each range, but the markers are located in a single pass over the
+	 * document instead of once per range, so the time does not grow with the square of the number of ranges.
+	 *
+	 * @param ranges      The start and end marker of each range, in any order.
+	 * @param isInclusive Should the marker nodes be included.
+	 * @return The extracted documents in the order of the ranges.
+	 */
+	public static ArrayList<Document> extractContentRanges(List<Node[]> ranges, boolean isInclusive) throws Exception {
+		Integer[] order = sortRanges(ranges);
+
+		Document[] dstDocs = new Document[ranges.size()];
+		for (Integer index : order) {
+			Node[] range = ranges.get(index);
+			Document dstDoc = new Document();
+			dstDoc.getFirstSection().getBody().removeAllChildren();
+
+			NodeImporter importer = new NodeImporter(range[0].getDocument(), dstDoc, ImportFormatMode.KEEP_SOURCE_FORMATTING);
+			importRange(range[0], range[1], isInclusive, importer, dstDoc.getFirstSection().getBody());
+			dstDocs[index] = dstDoc;
+		}
+
+		return new ArrayList<Document>(Arrays.asList(dstDocs));
+	}
+
+	/**
+	 * Extracts the content of many ranges of the same document into one new document, in document order.
+	 *
+	 * @see #extractContentRanges(List, boolean)
+	 */
+	public static Document extractContentRangesToDocument(List<Node[]> ranges, boolean isInclusive) throws Exception {
+		Integer[] order = sortRanges(ranges);
+
+		Document dstDoc = new Document();
+		dstDoc.getFirstSection().getBody().removeAllChildren();
+		if (ranges.isEmpty())
+			return dstDoc;
+
+		// A single importer is used for all ranges, so styles and lists are only imported once.
+		NodeImporter importer = new NodeImporter(ranges.get(0)[0].getDocument(), dstDoc, ImportFormatMode.KEEP_SOURCE_FORMATTING);
+		for (Integer index : order) {
+			Node[] range = ranges.get(index);
+			importRange(range[0], range[1], isInclusive, importer, dstDoc.getFirstSection().getBody());
+		}
+
+		return dstDoc;
+	}
+
+	/**
+	 * Checks the ranges the same way as verifyParameterNodes and returns the indices of the ranges sorted
+	 * in the document order of their start markers. The positions of all markers are found in one pass
+	 * over the document.
+	 */
+	private static Integer[] sortRanges(final List<Node[]> ranges) throws Exception {
+		if (ranges.isEmpty())
+			return new Integer[0];
+
+		DocumentBase doc = null;
+		final IdentityHashMap<Node, Integer> positions = new IdentityHashMap<Node, Integer>();
+		for (Node[] range : ranges) {
+			if (range[0] == null)
+				throw new IllegalArgumentException("Start node cannot be null");
+			if (range[1] == null)
+				throw new IllegalArgumentException("End node cannot be null");
+
+			if (doc == null)
+				doc = range[0].getDocument();
+			if (!doc.equals(range[0].getDocument()) || !doc.equals(range[1].getDocument()))
+				throw new IllegalArgumentException("Start node and end node must belong to the same document");
+
+			if (range[0].getAncestor(NodeType.BODY) == null || range[1].getAncestor(NodeType.BODY) == null)
+				throw new IllegalArgumentException("Start node and end node must be a child or descendant of a body");
+
+			positions.put(range[0], null);
+			positions.put(range[1], null);
+		}
+
+		int position = 0;
+		int found = 0;
+		for (Node node : (Iterable<Node>) doc.getChildNodes(NodeType.ANY, true)) {
+			if (positions.containsKey(node)) {
+				positions.put(node, position);
+				if (++found == positions.size())
+					break;
+			}
+			position++;
+		}
+
+		for (Node[] range : ranges) {
+			if (positions.get(range[0]) > positions.get(range[1]))
+				throw new IllegalArgumentException("The end node must be after the start node in the body");
+		}
+
+		Integer[] order = new Integer[ranges.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer x, Integer y) {
+				return positions.get(ranges.get(x)[0]).compareTo(positions.get(ranges.get(y)[0]));
+			}
+		});
+
+		return order;
+	}
+
+	/**
+	 * Imports the range into the destination body. The markers must have been checked by the caller.
+	 */
+	private static void importRange(Node startNode, Node endNode, boolean isInclusive, NodeImporter importer, Body dstBody) throws Exception {
+		// Find the block level nodes of the markers.
+		Node startBlock = startNode;
+		while (startBlock.getParentNode().getNodeType() != NodeType.BODY)
+			startBlock = startBlock.getParentNode();
+
+		Node endBlock = endNode;
+		while (endBlock.getParentNode().getNodeType() != NodeType.BODY)
+			endBlock = endBlock.getParentNode();
+
+		Node currNode = startBlock;
+		while (true) {
+			boolean isStartingNode = currNode == startBlock;
+			boolean isEndingNode = currNode == endBlock;
+
+			if (isStartingNode || isEndingNode)
+				importMarkerBlock(currNode, isStartingNode ? startNode : null, isEndingNode ? endNode : null, isInclusive, importer, dstBody);
+			else
+				// Node is not a start or end marker, import it as it is.
+				dstBody.appendChild(importer.importNode(currNode, true));
+
+			if (isEndingNode)
+				return;
+
+			// Move to the next node. If next node is null that means the rest of the content is found in a different section.
+			if (currNode.getNextSibling() == null) {
+				Section nextSection = (Section) currNode.getAncestor(NodeType.SECTION).getNextSibling();
+				currNode = nextSection.getBody().getFirstChild();
+			} else {
+				currNode = currNode.getNextSibling();
+			}
+		}
+	}
+
+	/**
+	 * Imports the part of a block level node that is within the range. The start or the end marker is null if
+	 * the node only contains the other marker.
+	 */
+	private static void importMarkerBlock(Node block, Node startMarker, Node endMarker, boolean isInclusive,
+			NodeImporter importer, Body dstBody) throws Exception {
+		if (!block.isComposite()) {
+			// A node such as BookmarkEnd directly in the body is wrapped into a paragraph, the same as extractContent does.
+			if (isInclusive || (startMarker != block && endMarker != block)) {
+				Paragraph paragraph = new Paragraph(dstBody.getDocument());
+				paragraph.appendChild(importer.importNode(block, true));
+				dstBody.appendChild(paragraph);
+			}
+			return;
+		}
+
+		boolean isStartInline = startMarker != null && isInline(startMarker);
+		boolean isEndInline = endMarker != null && isInline(endMarker);
+
+		// A block level marker is either included as a whole or not at all.
+		if (!isStartInline && !isEndInline) {
+			if (isInclusive)
+				dstBody.appendChild(importer.importNode(block, true));
+			return;
+		}
+
+		// Only markers which are direct children of the block can be cut without cloning, e.g. runs of a paragraph.
+		// Others, such as a marker inside a table cell, are extracted by cloning the block the same way as extractContent.
+		if ((isStartInline && startMarker.getParentNode() != block) || (isEndInline && endMarker.getParentNode() != block)) {
+			ArrayList nodes = new ArrayList();
+			CompositeNode cloneNode = (CompositeNode) block.deepClone(true);
+			if (startMarker != null)
+				processMarker(cloneNode, nodes, startMarker, isInclusive, true, endMarker != null);
+			if (endMarker != null)
+				processMarker(cloneNode, nodes, endMarker, isInclusive, false, true);
+			for (Node node : (Iterable<Node>) nodes)
+				dstBody.appendChild(importer.importNode(node, true));
+			return;
+		}
+
+		// Find the first and the last child to import. A missing marker does not limit the children, as the range
+		// continues before or after the block. An excluded block level marker excludes the whole block.
+		Node first = ((CompositeNode) block).getFirstChild();
+		Node last = ((CompositeNode) block).getLastChild();
+		if (isStartInline) {
+			Node marker = adjustMarker(startMarker, true, isInclusive);
+			first = isInclusive ? marker : marker.getNextSibling();
+		} else if (startMarker != null && !isInclusive) {
+			return;
+		}
+		if (isEndInline) {
+			Node marker = adjustMarker(endMarker, false, isInclusive);
+			last = isInclusive ? marker : marker.getPreviousSibling();
+		} else if (endMarker != null && !isInclusive) {
+			return;
+		}
+
+		// Import the block without its children, then only the children within the range.
+		CompositeNode dstBlock = (CompositeNode) importer.importNode(block, false);
+		Node stop = last == null ? first : last.getNextSibling();
+		for (Node child = first; child != null && child != stop; child = child.getNextSibling())
+			dstBlock.appendChild(importer.importNode(child, true));
+
+		// After cutting, the block may become empty. If it has don't include it.
+		if (dstBlock.hasChildNodes())
+			dstBody.appendChild(dstBlock);
+	}
+
+	/**
+	 * Moves an inline marker the same way as processMarker does, so that fields and comments are kept whole.
+	 */
+	private static Node adjustMarker(Node node, boolean isStartMarker, boolean isInclusive) {
+		if (node.getNodeType() == NodeType.FIELD_START) {
+			if ((isStartMarker && !isInclusive) || (!isStartMarker && isInclusive)) {
+				while (node.getNextSibling() != null && node.getNodeType() != NodeType.FIELD_END)
+					node = node.getNextSibling();
+			}
+		}
+
+		if (node.getNodeType() == NodeType.COMMENT_RANGE_END) {
+			while (node.getNextSibling() != null && node.getNodeType() != NodeType.COMMENT)
+				node = node.getNextSibling();
+		}
+
+		return node;
+	}
+	//ExEnd:ExtractContentToDocument
+
 	/**
 	 * Checks the input parameters are correct and can be used. Throws an exception
 	 * if there is any problem.
@@ -266,6 +549,41 @@ public class ExtractContentBetweenParagraphs {
 		}
 	}
 
+	/**
+	 * Creates a document with bookmarks which start and end inside paragraphs and span two and three paragraphs.
+	 */
+	static Document createBookmarkSample() throws Exception {
+		Document doc = new Document();
+		DocumentBuilder builder = new DocumentBuilder(doc);
+
+		builder.write("Before the first bookmark. ");
+		builder.startBookmark("TwoParagraphs");
+		builder.writeln("Start of the first bookmark.");
+		builder.write("End of the first bookmark.");
+		builder.endBookmark("TwoParagraphs");
+		builder.writeln(" After the first bookmark.");
+
+		builder.write("Before the second bookmark. ");
+		builder.startBookmark("ThreeParagraphs");
+		builder.writeln("Start of the second bookmark.");
+		builder.writeln("Middle of the second bookmark.");
+		builder.write("End of the second bookmark.");
+		builder.endBookmark("ThreeParagraphs");
+		builder.writeln(" After the second bookmark.");
+
+		return doc;
+	}
+
+	/**
+	 * Returns the text of the paragraphs of the document, one line per paragraph.
+	 */
+	static String getParagraphsText(Document doc) throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (Paragraph paragraph : (Iterable<Paragraph>) doc.getChildNodes(NodeType.PARAGRAPH, true))
+			text.append(paragraph.toString(SaveFormat.TEXT).trim()).append('\n');
+		return text.toString();
+	}
+
 	public static Document generateDocument(Document srcDoc, ArrayList nodes) throws Exception {
 
 		// Create a blank document.
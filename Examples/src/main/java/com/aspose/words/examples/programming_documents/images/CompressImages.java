@@ -12,10 +12,19 @@ import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.security.MessageDigest;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 public class CompressImages {
@@ -37,8 +46,15 @@ public class CompressImages {
         // In Java this seems to be a good compression / quality setting.
         final int jpegQuality = 90;
 
-        // Resample images to desired ppi and save.
-        int count = Resampler.resample(doc, desiredPpi, jpegQuality);
+        // Resample images to desired ppi and save. Each distinct image is resampled once, on a pool with a thread
+        // per processor, so decoded images of at most that many images are held in memory at a time.
+        int count;
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            count = Resampler.resampleInParallel(doc, desiredPpi, jpegQuality, executor);
+        } finally {
+            executor.shutdown();
+        }
 
         System.out.println(MessageFormat.format("Resampled {0} images.", count));
 
@@ -79,21 +95,107 @@ class Resampler {
     public static int resample(Document doc, int desiredPpi, int jpegQuality) throws Exception {
         int count = 0;
 
-        // Convert VML shapes.
-        for (Shape vmlShape : (Iterable<Shape>) doc.getChildNodes(NodeType.SHAPE, true)) {
+        // VML and DrawingML shapes are both Shape nodes, so a single pass visits every image once.
+        for (Shape shape : (Iterable<Shape>) doc.getChildNodes(NodeType.SHAPE, true)) {
             // It is important to use this method to correctly get the picture shape size in points even if the picture is inside a group shape.
-            Point2D.Float shapeSizeInPoints = vmlShape.getSizeInPoints();
+            Point2D.Float shapeSizeInPoints = shape.getSizeInPoints();
 
-            if (resampleCore(vmlShape.getImageData(), shapeSizeInPoints, desiredPpi, jpegQuality))
+            if (resampleCore(shape.getImageData(), shapeSizeInPoints, desiredPpi, jpegQuality))
                 count++;
         }
 
-        // Convert DrawingML shapes.
-        for (com.aspose.words.Shape dmlShape : (Iterable<com.aspose.words.Shape>) doc.getChildNodes(NodeType.SHAPE, true)) {
-            // In MS Word the size of a DrawingML shape is always in points at the moment.
-            Point2D.Float shapeSizeInPoints = dmlShape.getSizeInPoints();
-            if (resampleCore(dmlShape.getImageData(), shapeSizeInPoints, desiredPpi, jpegQuality))
-                count++;
+        return count;
+    }
+
+    /**
+     * Does the same as resample, but every distinct image is resampled only once and the distinct images are
+     * resampled on the specified executor in parallel.
+     * <p>
+     * Shapes are grouped by the SHA-256 digest of their image bytes and the size the image is resampled to, so an
+     * image repeated in many places (e.g. a logo in every header) is decoded, scaled and encoded once and the result
+     * is stored in all the shapes that use it. The document itself is only accessed from the calling thread.
+     *
+     * @param doc         The document to process.
+     * @param desiredPpi  Desired pixels per inch. 220 high quality. 150 screen quality. 96 email quality.
+     * @param jpegQuality 0 - 100% JPEG quality.
+     * @param executor    The executor that resamples the distinct images.
+     * @return The number of shapes whose image was resampled.
+     */
+    public static int resampleInParallel(Document doc, final int desiredPpi, final int jpegQuality, ExecutorService executor) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        LinkedHashMap<String, ResampleGroup> groups = new LinkedHashMap<String, ResampleGroup>();
+
+        for (Shape shape : (Iterable<Shape>) doc.getChildNodes(NodeType.SHAPE, true)) {
+            ImageData imageData = shape.getImageData();
+            if (imageData == null)
+                continue;
+
+            byte[] originalBytes = imageData.getImageBytes();
+            Dimension dstSize;
+            try {
+                dstSize = getResampledSize(imageData, originalBytes, shape.getSizeInPoints(), desiredPpi);
+            } catch (Exception e) {
+                // Same as resampleCore, an image which cannot be processed is logged and left as it is.
+                System.out.println("Error processing an image, ignoring. " + e.getMessage());
+                continue;
+            }
+            if (dstSize == null)
+                continue;
+
+            String key = Utils.toHex(digest.digest(originalBytes)) + ":" + dstSize.width + "x" + dstSize.height;
+            ResampleGroup group = groups.get(key);
+            if (group == null) {
+                group = new ResampleGroup(originalBytes, dstSize);
+                groups.put(key, group);
+            }
+            group.mImages.add(imageData);
+        }
+
+        // Only the bytes of the images are passed to the executor.
+        ArrayList<Future<byte[]>> results = new ArrayList<Future<byte[]>>(groups.size());
+        for (final ResampleGroup group : groups.values()) {
+            results.add(executor.submit(new Callable<byte[]>() {
+                public byte[] call() throws Exception {
+                    BufferedImage srcImage;
+                    try {
+                        srcImage = ImageIO.read(new ByteArrayInputStream(group.mOriginalBytes));
+                    } catch (Exception e) {
+                        // ImageIO fails on some images it has a reader for, e.g. CMYK JPEGs.
+                        return null;
+                    }
+                    return srcImage == null ? null : scaleToJpeg(srcImage, group.mSize.width, group.mSize.height, jpegQuality);
+                }
+            }));
+        }
+
+        int count = 0;
+        int groupIndex = 0;
+        for (ResampleGroup group : groups.values()) {
+            byte[] resampledBytes;
+            try {
+                resampledBytes = results.get(groupIndex++).get();
+
+                // ImageIO cannot read some of the images Aspose.Words can, these are decoded by Aspose.Words here.
+                if (resampledBytes == null)
+                    resampledBytes = scaleToJpeg(group.mImages.get(0).toImage(), group.mSize.width, group.mSize.height, jpegQuality);
+            } catch (ExecutionException e) {
+                System.out.println("Error processing an image, ignoring. " + e.getCause().getMessage());
+                continue;
+            } catch (Exception e) {
+                System.out.println("Error processing an image, ignoring. " + e.getMessage());
+                continue;
+            }
+
+            int savedBytes = group.mOriginalBytes.length - resampledBytes.length;
+            System.out.println(MessageFormat.format("Image used by {0} shapes. Original size {1}, new size {2}, saved {3} bytes per shape.",
+                    group.mImages.size(), group.mOriginalBytes.length, resampledBytes.length, Math.max(savedBytes, 0)));
+
+            // If the image saved as JPEG is smaller than the original, store it in all shapes using the image.
+            if (savedBytes > 0) {
+                for (ImageData imageData : group.mImages)
+                    imageData.setImageBytes(resampledBytes);
+                count += group.mImages.size();
+            }
         }
 
         return count;
@@ -139,36 +241,81 @@ class Resampler {
             // Create a new image of such size that it will hold only the pixels required by the desired ppi.
             int dstWidthPixels = (int) (shapeWidthInches * ppi);
             int dstHeightPixels = (int) (shapeHeightInches * ppi);
-            BufferedImage dstImage = new BufferedImage(dstWidthPixels, dstHeightPixels, getResampledImageType(srcImage.getType()));
+            byte[] dstBytes = scaleToJpeg(srcImage, dstWidthPixels, dstHeightPixels, jpegQuality);
 
-            // Drawing the source image to the new image scales it to the new size.
-            Graphics2D g = (Graphics2D) dstImage.getGraphics();
-            try {
-                // Setting any other interpolation or rendering value can increase the time taken extremely.
-                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                g.drawImage(
-                        srcImage,
-                        0, 0, dstWidthPixels, dstHeightPixels,
-                        0, 0, srcImage.getWidth(), srcImage.getHeight(),
-                        null);
-            } finally {
-                g.dispose();
+            // If the image saved as JPEG is smaller than the original, store it in the shape.
+            System.out.println(MessageFormat.format("Original size {0}, new size {1}.", originalBytes.length, dstBytes.length));
+            if (dstBytes.length < originalBytes.length) {
+                imageData.setImageBytes(dstBytes);
+                return true;
             }
+        } catch (Exception e) {
+            // Catch an exception, log an error and continue if cannot process one of the images for whatever reason.
+            System.out.println("Error processing an image, ignoring. " + e.getMessage());
+        }
 
+        return false;
+    }
+
+    /**
+     * Returns the size in pixels one VML or DrawingML image is resampled to, or null if the image is not resampled.
+     */
+    private static Dimension getResampledSize(ImageData imageData, byte[] originalBytes, Point2D.Float shapeSizeInPoints, int ppi) throws Exception {
+        // Same checks as in resampleCore: only images stored in the shape, no metafiles, only if the PPI is too high.
+        if (originalBytes == null)
+            return null;
+
+        int imageType = imageData.getImageType();
+        if ((imageType == ImageType.WMF) || (imageType == ImageType.EMF))
+            return null;
+
+        double shapeWidthInches = ConvertUtil.pointToInch(shapeSizeInPoints.getX());
+        double shapeHeightInches = ConvertUtil.pointToInch(shapeSizeInPoints.getY());
+
+        ImageSize imageSize = imageData.getImageSize();
+        double currentPpiX = imageSize.getWidthPixels() / shapeWidthInches;
+        double currentPpiY = imageSize.getHeightPixels() / shapeHeightInches;
+        if ((currentPpiX <= ppi) || (currentPpiY <= ppi))
+            return null;
+
+        return new Dimension((int) (shapeWidthInches * ppi), (int) (shapeHeightInches * ppi));
+    }
+
+    /**
+     * Scales the image to the specified size and encodes it as JPEG with the specified quality setting.
+     * Does not use the document, so it can be called from any thread.
+     */
+    private static byte[] scaleToJpeg(BufferedImage srcImage, int dstWidthPixels, int dstHeightPixels, int jpegQuality) throws Exception {
+        BufferedImage dstImage = new BufferedImage(dstWidthPixels, dstHeightPixels, getResampledImageType(srcImage.getType()));
+
+        // Drawing the source image to the new image scales it to the new size.
+        Graphics2D g = (Graphics2D) dstImage.getGraphics();
+        try {
+            // Setting any other interpolation or rendering value can increase the time taken extremely.
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            g.drawImage(
+                    srcImage,
+                    0, 0, dstWidthPixels, dstHeightPixels,
+                    0, 0, srcImage.getWidth(), srcImage.getHeight(),
+                    null);
+        } finally {
+            g.dispose();
+        }
 
-            // Create JPEG encoder parameters with the quality setting.
-            Iterator writers = ImageIO.getImageWritersByFormatName("jpeg");
-            ImageWriter writer = (ImageWriter) writers.next();
-            ImageWriteParam param = writer.getDefaultWriteParam();
-            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-            param.setCompressionQuality(jpegQuality / 100.0f);
+        // Create JPEG encoder parameters with the quality setting.
+        Iterator writers = ImageIO.getImageWritersByFormatName("jpeg");
+        ImageWriter writer = (ImageWriter) writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality / 100.0f);
 
-            // Save the image as JPEG to a memory stream.
-            ByteArrayOutputStream dstStream = new ByteArrayOutputStream();
-            ImageOutputStream ios = ImageIO.createImageOutputStream(dstStream);
+        // Save the image as JPEG to a memory stream.
+        ByteArrayOutputStream dstStream = new ByteArrayOutputStream();
+        ImageOutputStream ios = ImageIO.createImageOutputStream(dstStream);
+        try {
             writer.setOutput(ios);
 
             IIOImage ioImage = new IIOImage(dstImage, null, null);
@@ -176,21 +323,12 @@ class Resampler {
 
             // This is required, otherwise not all data might be written to our stream.
             ios.flush();
+        } finally {
             // The Java documentation recommends disposing image readers and writers asap.
             writer.dispose();
-
-            // If the image saved as JPEG is smaller than the original, store it in the shape.
-            System.out.println(MessageFormat.format("Original size {0}, new size {1}.", originalBytes.length, dstStream.size()));
-            if (dstStream.size() < originalBytes.length) {
-                imageData.setImageBytes(dstStream.toByteArray());
-                return true;
-            }
-        } catch (Exception e) {
-            // Catch an exception, log an error and continue if cannot process one of the images for whatever reason.
-            System.out.println("Error processing an image, ignoring. " + e.getMessage());
         }
 
-        return false;
+        return dstStream.toByteArray();
     }
 
     private static int getResampledImageType(int srcImageType) {
@@ -214,5 +352,19 @@ class Resampler {
                 return srcImageType;
         }
     }
+
+    /**
+     * The shapes that use the same image and are resampled to the same size.
+     */
+    private static class ResampleGroup {
+        ResampleGroup(byte[] originalBytes, Dimension size) {
+            mOriginalBytes = originalBytes;
+            mSize = size;
+        }
+
+        final byte[] mOriginalBytes;
+        final Dimension mSize;
+        final ArrayList<ImageData> mImages = new ArrayList<ImageData>();
+    }
 }
 //ExEnd:Resampler
\ No newline at end of file
@@ -3,6 +3,20 @@ package com.aspose.words.examples.programming_documents.images;
 import com.aspose.words.*;
 import com.aspose.words.examples.Utils;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 
 public class ExtractImagesToFiles {
     public static void main(String[] args) throws Exception {
@@ -19,11 +33,110 @@ public class ExtractImagesToFiles {
                 ) {
             if (shape.hasImage()) {
                 String imageFileName = String.format(
-                        "Image.ExportImages.{0}_out_{1}", imageIndex, FileFormatUtil.imageTypeToExtension(shape.getImageData().getImageType()));
+                        "Image.ExportImages.%d_out%s", imageIndex, FileFormatUtil.imageTypeToExtension(shape.getImageData().getImageType()));
                 shape.getImageData().save(dataDir + imageFileName);
                 imageIndex++;
             }
         }
         //ExEnd:ExtractImagesToFiles
+
+        //ExStart:ExtractDistinctImagesToFiles
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            int imageCount = extractDistinctImages(doc, new File(dataDir + "Image.ExportImages_out"), "Image.SampleImages.doc", executor);
+            System.out.println("Distinct images extracted: " + imageCount);
+        } finally {
+            executor.shutdown();
+        }
+        //ExEnd:ExtractDistinctImagesToFiles
+    }
+
+    //ExStart:extractDistinctImages
+    /**
+     * Writes every distinct image of the document to the output folder only once, under a name made of the SHA-256
+     * digest of the image bytes, and writes a manifest file which maps each shape to its image file. Linked images
+     * are not stored in the document, so the manifest maps their shapes to the linked file instead.
+     * <p>
+     * The images are written on the specified executor, while the document is only accessed from the calling thread.
+     * As the names depend on the content only, the same folder can be used for many documents and an image shared
+     * between the documents is still written once.
+     *
+     * @param documentName The name the manifest of the document is named after, unique among the documents that
+     *                     share the folder.
+     * @return The number of image files written.
+     */
+    public static int extractDistinctImages(Document doc, File outputFolder, String documentName, ExecutorService executor) throws Exception {
+        outputFolder.mkdirs();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        HashSet<String> fileNames = new HashSet<String>();
+        ArrayList<Future<Boolean>> writes = new ArrayList<Future<Boolean>>();
+
+        Writer manifest = new OutputStreamWriter(new FileOutputStream(new File(outputFolder, documentName + ".manifest.txt")), "UTF-8");
+        try {
+            int shapeIndex = 0;
+            for (Shape shape : (Iterable<Shape>) doc.getChildNodes(NodeType.SHAPE, true)) {
+                if (!shape.hasImage()) {
+                    shapeIndex++;
+                    continue;
+                }
+
+                // The image bytes are held by the document anyway, so they are hashed before anything is written.
+                final byte[] imageBytes = shape.getImageData().getImageBytes();
+                if (imageBytes == null) {
+                    manifest.write(shapeIndex + "\t" + shape.getName() + "\tlinked:" + shape.getImageData().getSourceFullName() + "\n");
+                    shapeIndex++;
+                    continue;
+                }
+
+                String fileName = Utils.toHex(digest.digest(imageBytes)) + FileFormatUtil.imageTypeToExtension(shape.getImageData().getImageType());
+                if (fileNames.add(fileName)) {
+                    final File imageFile = new File(outputFolder, fileName);
+                    writes.add(executor.submit(new Callable<Boolean>() {
+                        public Boolean call() throws Exception {
+                            return writeImage(imageBytes, imageFile);
+                        }
+                    }));
+                }
+
+                manifest.write(shapeIndex + "\t" + shape.getName() + "\t" + fileName + "\n");
+                shapeIndex++;
+            }
+        } finally {
+            manifest.close();
+        }
+
+        int writtenCount = 0;
+        for (Future<Boolean> write : writes) {
+            if (write.get())
+                writtenCount++;
+        }
+
+        return writtenCount;
+    }
+
+    /**
+     * Writes the image unless a file with the same content address already exists. The image is written to a
+     * temporary file first and then renamed, so an incomplete file is never seen under the content address.
+     */
+    private static boolean writeImage(byte[] imageBytes, File imageFile) throws Exception {
+        if (imageFile.exists())
+            return false;
+
+        File tempFile = File.createTempFile(imageFile.getName(), ".tmp", imageFile.getParentFile());
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024);
+        try {
+            stream.write(imageBytes);
+        } finally {
+            stream.close();
+        }
+
+        if (!tempFile.renameTo(imageFile)) {
+            // Another document written to the same folder has stored the same image in the meantime.
+            tempFile.delete();
+            return false;
+        }
+
+        return true;
     }
-}
\ No newline at end of file
+    //ExEnd:extractDistinctImages
+}
@@ -2,7 +2,7 @@ package com.aspose.words.examples.rendering_printing;
 
 import com.aspose.words.*;
 
-public class RenderedDocument extends LayoutEntity {
+public class RenderedDocument extends LayoutEntity implements AutoCloseable {
     /**
      * Creates a new instance from the supplied Aspose.Words.Document class.
      *
@@ -19,6 +19,47 @@ public class RenderedDocument extends LayoutEntity {
         LinkLayoutMarkersToNodes(doc);
     }
 
+    /**
+     * Creates a new instance which builds the entities of a page only when the page is first accessed.
+     * <p>
+     * Only the pages are enumerated up front. Accessing the content of a page builds its entities and links them to nodes.
+     * At most maxMaterializedPages pages keep their entities, the least recently accessed page is released first
+     * and built again if it is accessed later. Entities obtained from a released page stay valid but are detached from it.
+     * <p>
+     * The layout enumerator is shared, so the instance must not be accessed from several threads at a time.
+     *
+     * @param document             A document whose page layout model to enumerate.
+     * @param maxMaterializedPages The maximum number of pages whose entities are kept in memory.
+     * @throws Exception
+     */
+    public RenderedDocument(Document doc, final int maxMaterializedPages) throws Exception {
+        if (maxMaterializedPages < 1) {
+            throw new IllegalArgumentException("'maxMaterializedPages' must be positive.");
+        }
+
+        mLayoutCollector = new LayoutCollector(doc);
+        mEnumerator = new LayoutEnumerator(doc);
+        mMaterializedPages = new java.util.LinkedHashMap<RenderedPage, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<RenderedPage, Boolean> eldest) {
+                if (size() <= maxMaterializedPages) {
+                    return false;
+                }
+
+                // Replace rather than clear the list, iterators over the released page stay valid.
+                eldest.getKey().mChildEntities = new java.util.ArrayList<LayoutEntity>();
+                return true;
+            }
+        };
+
+        // Add the pages only. Their content is built by MaterializePage.
+        do {
+            AddChildEntity(mEnumerator);
+        } while (mEnumerator.moveNext());
+
+        IndexLayoutMarkersOfNodes(doc);
+    }
+
     /**
      * Provides access to the pages of a document.
      */
@@ -32,6 +73,10 @@ public class RenderedDocument extends LayoutEntity {
      * Note that this method does not work with Run nodes or nodes in the header or footer.
      */
     public final LayoutCollection<LayoutEntity> GetLayoutEntitiesOfNode(Node node) {
+        if (mLayoutCollector == null) {
+            throw new IllegalStateException("The rendered document is closed.");
+        }
+
         if (mLayoutCollector.getDocument() != node.getDocument()) {
             throw new IllegalArgumentException("Node does not belong to the same document which was rendered.");
         }
@@ -40,29 +85,73 @@ public class RenderedDocument extends LayoutEntity {
             return new LayoutCollection<LayoutEntity>(mChildEntities);
         }
 
-        java.util.ArrayList<LayoutEntity> entities = new java.util.ArrayList<LayoutEntity>();
-        for (LayoutEntity entity : GetChildEntities(~LayoutEntityType.NONE, true)) {
-            try {
-                // Retrieve all entities from the layout document (inversion of LayoutEntityType.None).
+        if (mMaterializedPages != null) {
+            return new LayoutCollection<LayoutEntity>(FindLayoutEntitiesOnPages(node));
+        }
 
-                if (entity.getParentNode() == node) {
-                    entities.add(entity);
-                }
+        // Copy the indexed list, so that callers cannot modify the index.
+        java.util.ArrayList<LayoutEntity> entities = mNodeToEntitiesLookup.get(node);
+        return new LayoutCollection<LayoutEntity>(entities == null
+                ? new java.util.ArrayList<LayoutEntity>()
+                : new java.util.ArrayList<LayoutEntity>(entities));
+    }
 
-                if (entity.getType() == LayoutEntityType.ROW) {
-                    RenderedRow row = (RenderedRow) entity;
-                    if (row.getTable() == node) {
-                        entities.add(entity);
-                    }
-                }
+    /**
+     * Releases the layout collector, the enumerator and the lookups used to link layout entities to nodes.
+     * <p>
+     * The pages and entities stay accessible, but GetLayoutEntitiesOfNode can no longer be used.
+     * If pages are built on demand, the pages built before closing keep their entities,
+     * and accessing the content of a page which is not built throws IllegalStateException.
+     */
+    public void close() {
+        if (mLayoutCollector == null) {
+            return;
+        }
 
-            } catch (RuntimeException ex) {
+        mLayoutCollector.clear();
+        mLayoutCollector = null;
+        mEnumerator = null;
+        mLayoutToLinesLookup.clear();
+        mLayoutToSpanLookup.clear();
+        mNodeToEntitiesLookup.clear();
+        mMarkerToNodeLookup.clear();
+        mSpanToNodeLookup.clear();
+    }
+
+    /**
+     * Reserved for internal use.
+     * <p>
+     * Returns the child entities of the page. When the document is enumerated lazily, builds them if they are not built yet.
+     */
+    final java.util.ArrayList<LayoutEntity> MaterializePage(RenderedPage page) {
+        // Checking the cache also marks the page as the most recently accessed one.
+        if (mMaterializedPages == null || mMaterializedPages.get(page) != null) {
+            return page.mChildEntities;
+        }
 
-                throw ex;
+        if (mEnumerator == null) {
+            throw new IllegalStateException("The rendered document is closed.");
+        }
+
+        // Register the page before building it, as linking the lines accesses the children of the page.
+        java.util.ArrayList<LayoutEntity> children = new java.util.ArrayList<LayoutEntity>();
+        page.mChildEntities = children;
+        mMaterializedPages.put(page, Boolean.TRUE);
+        try {
+            mEnumerator.setCurrent(page.getLayoutObject());
+            if (mEnumerator.moveFirstChild()) {
+                ProcessLayoutElements(page);
             }
+
+            LinkPageLinesToNodes(page, (int) LayoutEntityType.COLUMN);
+            LinkPageLinesToNodes(page, (int) LayoutEntityType.COMMENT);
+        } catch (Exception e) {
+            mMaterializedPages.remove(page);
+            page.mChildEntities = new java.util.ArrayList<LayoutEntity>();
+            throw new IllegalStateException("Cannot build the layout entities of page " + page.getPageIndex() + ".", e);
         }
 
-        return new LayoutCollection<LayoutEntity>(entities);
+        return children;
     }
 
     private void ProcessLayoutElements(LayoutEntity current) throws Exception {
@@ -89,10 +178,9 @@ public class RenderedDocument extends LayoutEntity {
         java.util.ArrayList<RenderedLine> collectedLines = new java.util.ArrayList<RenderedLine>();
 
         for (RenderedPage page : getPages()) {
-            //System.out.println(page.getText());
-            for (LayoutEntity story : page.GetChildEntities(type, false)) {
+            for (LayoutEntity story : page.IterateChildEntities(type, false)) {
                 //RenderedLine
-                for (LayoutEntity le : story.GetChildEntities((int) 32, true)) //LayoutEntityType.LINE
+                for (LayoutEntity le : story.IterateChildEntities((int) 32, true)) //LayoutEntityType.LINE
                 {
                     RenderedLine line = (RenderedLine) le;
                     collectedLines.add(line);
@@ -126,15 +214,175 @@ public class RenderedDocument extends LayoutEntity {
                     break;
 
                 default:
-                    if (mLayoutCollector.getEntity(node) != null) {
-                        System.out.println(mLayoutCollector.getEntity(node));
-                        //System.out.println(mLayoutToSpanLookup.get(mLayoutCollector.getEntity(node)));
-
-                        mLayoutToSpanLookup.get(mLayoutCollector.getEntity(node)).setParentNode(node);
+                    Object entity = mLayoutCollector.getEntity(node);
+                    if (entity != null) {
+                        mLayoutToSpanLookup.get(entity).setParentNode(node);
                     }
                     break;
             }
         }
+
+        IndexLayoutEntitiesByNode();
+    }
+
+    /**
+     * Maps each node to its layout entities, so that GetLayoutEntitiesOfNode does not have to scan the whole layout.
+     * Rows are additionally mapped to their table.
+     */
+    private void IndexLayoutEntitiesByNode() {
+        // Retrieve all entities from the layout document (inversion of LayoutEntityType.None).
+        for (LayoutEntity entity : IterateChildEntities(~LayoutEntityType.NONE, true)) {
+            Node parentNode;
+            try {
+                parentNode = entity.getParentNode();
+            } catch (RuntimeException ex) {
+                // Entities whose node cannot be resolved, e.g. stories without lines, cannot be looked up by a node.
+                continue;
+            }
+
+            AddToNodeIndex(parentNode, entity);
+            if (entity.getType() == LayoutEntityType.ROW && parentNode != null) {
+                AddToNodeIndex(((Row) parentNode).getParentTable(), entity);
+            }
+        }
+    }
+
+    private void AddToNodeIndex(Node node, LayoutEntity entity) {
+        if (node == null) {
+            return;
+        }
+
+        java.util.ArrayList<LayoutEntity> entities = mNodeToEntitiesLookup.get(node);
+        if (entities == null) {
+            entities = new java.util.ArrayList<LayoutEntity>();
+            mNodeToEntitiesLookup.put(node, entities);
+        }
+
+        entities.add(entity);
+    }
+
+    /**
+     * Maps the layout objects of the nodes back to the nodes, so that lines and spans of a page can be linked
+     * to their nodes when the page is built. Paragraph and row markers link lines, the others link spans.
+     */
+    @SuppressWarnings("unchecked")
+    private void IndexLayoutMarkersOfNodes(Document doc) throws Exception {
+        for (Node node : (Iterable<Node>) doc.getChildNodes(NodeType.ANY, true)) {
+            Object nodeEntity = mLayoutCollector.getEntity(node);
+            if (nodeEntity == null) {
+                continue;
+            }
+
+            if (node.getNodeType() == NodeType.PARAGRAPH || node.getNodeType() == NodeType.ROW) {
+                mMarkerToNodeLookup.put(nodeEntity, node);
+            } else {
+                mSpanToNodeLookup.put(nodeEntity, node);
+            }
+        }
+    }
+
+    private void LinkPageLinesToNodes(RenderedPage page, int storyType) throws Exception {
+        for (LayoutEntity story : page.IterateChildEntities(storyType, false)) {
+            java.util.ArrayList<RenderedLine> collectedLines = new java.util.ArrayList<RenderedLine>();
+            for (LayoutEntity le : story.IterateChildEntities((int) LayoutEntityType.LINE, true)) {
+                RenderedLine line = (RenderedLine) le;
+                collectedLines.add(line);
+                for (RenderedSpan span : line.getSpans()) {
+                    if (IsMarkerKind(span.getKind())) {
+                        SetParentNodeOfLines(collectedLines, mMarkerToNodeLookup.get(span.getLayoutObject()));
+                        collectedLines = new java.util.ArrayList<RenderedLine>();
+                    } else {
+                        Node spanNode = mSpanToNodeLookup.get(span.getLayoutObject());
+                        if (spanNode != null) {
+                            span.setParentNode(spanNode);
+                        }
+                    }
+                }
+            }
+
+            // The paragraph continues in the next column or on the next page, find its marker there.
+            if (!collectedLines.isEmpty()) {
+                SetParentNodeOfLines(collectedLines, FindMarkerNodeAfter(collectedLines.get(collectedLines.size() - 1)));
+            }
+        }
+    }
+
+    private Node FindMarkerNodeAfter(RenderedLine line) throws Exception {
+        mEnumerator.setCurrent(line.getLayoutObject());
+        while (mEnumerator.moveNextLogical() && mEnumerator.getType() == LayoutEntityType.LINE) {
+            if (!mEnumerator.moveFirstChild()) {
+                continue;
+            }
+
+            do {
+                if (IsMarkerKind(mEnumerator.getKind())) {
+                    return mMarkerToNodeLookup.get(mEnumerator.getCurrent());
+                }
+            } while (mEnumerator.moveNext());
+
+            mEnumerator.moveParent();
+        }
+
+        return null;
+    }
+
+    private static void SetParentNodeOfLines(java.util.ArrayList<RenderedLine> lines, Node markerNode) {
+        if (markerNode == null) {
+            return;
+        }
+
+        Node paragraph = markerNode.getNodeType() == NodeType.ROW
+                ? ((Row) markerNode).getLastCell().getLastParagraph()
+                : markerNode;
+        for (RenderedLine line : lines) {
+            line.setParentNode(paragraph);
+        }
+    }
+
+    private static boolean IsMarkerKind(String kind) {
+        return kind.equals("PARAGRAPH") || kind.equals("ROW") || kind.equals("CELL") || kind.equals("SECTION");
+    }
+
+    /**
+     * Finds the layout entities of a node on the pages the node spans, building those pages if needed.
+     */
+    private java.util.ArrayList<LayoutEntity> FindLayoutEntitiesOnPages(Node node) {
+        java.util.ArrayList<LayoutEntity> entities = new java.util.ArrayList<LayoutEntity>();
+        int startPage;
+        int endPage;
+        try {
+            startPage = mLayoutCollector.getStartPageIndex(node);
+            endPage = mLayoutCollector.getEndPageIndex(node);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot find the pages of the node.", e);
+        }
+
+        for (int pageIndex = Math.max(startPage, 1); pageIndex <= Math.min(endPage, mChildEntities.size()); pageIndex++) {
+            LayoutEntity page = mChildEntities.get(pageIndex - 1);
+            AddIfEntityOfNode(entities, page, node);
+            for (LayoutEntity entity : page.IterateChildEntities(~LayoutEntityType.NONE, true)) {
+                AddIfEntityOfNode(entities, entity, node);
+            }
+        }
+
+        return entities;
+    }
+
+    private static void AddIfEntityOfNode(java.util.ArrayList<LayoutEntity> entities, LayoutEntity entity, Node node) {
+        Node parentNode;
+        try {
+            parentNode = entity.getParentNode();
+        } catch (RuntimeException ex) {
+            return;
+        }
+
+        if (parentNode == node) {
+            entities.add(entity);
+        }
+
+        if (entity.getType() == LayoutEntityType.ROW && parentNode != null && ((Row) parentNode).getParentTable() == node) {
+            entities.add(entity);
+        }
     }
 
     private java.util.ArrayList<RenderedLine> GetLinesOfNode(Node node) throws Exception {
@@ -150,6 +398,12 @@ public class RenderedDocument extends LayoutEntity {
 
     private LayoutCollector mLayoutCollector;
     private LayoutEnumerator mEnumerator;
-    private static java.util.HashMap<Object, java.util.ArrayList<RenderedLine>> mLayoutToLinesLookup = new java.util.HashMap<Object, java.util.ArrayList<RenderedLine>>();
-    private static java.util.HashMap<Object, RenderedSpan> mLayoutToSpanLookup = new java.util.HashMap<Object, RenderedSpan>();
+    // Layout objects are opaque and compared by reference, so the lookups are identity based.
+    private final java.util.IdentityHashMap<Object, java.util.ArrayList<RenderedLine>> mLayoutToLinesLookup = new java.util.IdentityHashMap<Object, java.util.ArrayList<RenderedLine>>();
+    private final java.util.IdentityHashMap<Object, RenderedSpan> mLayoutToSpanLookup = new java.util.IdentityHashMap<Object, RenderedSpan>();
+    private final java.util.IdentityHashMap<Node, java.util.ArrayList<LayoutEntity>> mNodeToEntitiesLookup = new java.util.IdentityHashMap<Node, java.util.ArrayList<LayoutEntity>>();
+    // Used only when pages are built on demand.
+    private final java.util.IdentityHashMap<Object, Node> mMarkerToNodeLookup = new java.util.IdentityHashMap<Object, Node>();
+    private final java.util.IdentityHashMap<Object, Node> mSpanToNodeLookup = new java.util.IdentityHashMap<Object, Node>();
+    private java.util.LinkedHashMap<RenderedPage, Boolean> mMaterializedPages;
 }
@@ -18,9 +18,15 @@ import com.dotcms.repackage.org.osgi.framework.ServiceReference;
 import com.dotmarketing.filters.CMSFilter;
 import com.dotmarketing.osgi.GenericBundleActivator;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Hashtable;
+import java.util.Properties;
+
 public class Activator extends GenericBundleActivator {
 
     private ExportToWordServlet simpleServlet;
+    private ConversionMetricsServlet metricsServlet;
     private ExtHttpService httpService;
 
     @SuppressWarnings ("unchecked")
@@ -36,8 +42,15 @@ public class Activator extends GenericBundleActivator {
             httpService = (ExtHttpService) context.getService( sRef );
             try {
                 //Registering a Export to Word servlet
+                Hashtable<String, String> initParameters = loadConfiguration( context );
                 simpleServlet = new ExportToWordServlet();
-                httpService.registerServlet( "/exporttoword", simpleServlet, null, null );
+                httpService.registerServlet( "/exporttoword", simpleServlet, initParameters, null );
+
+                //Registering the conversion metrics servlet, only if enabled as the report is not protected
+                if ( Boolean.parseBoolean( initParameters.get( "metricsEnabled" ) ) ) {
+                    metricsServlet = new ConversionMetricsServlet( simpleServlet );
+                    httpService.registerServlet( "/exporttowordmetrics", metricsServlet, null, null );
+                }
 
                 //Registering a simple test filter
                 httpService.registerFilter( new TestFilter( "testFilter" ), "/exporttoword/.*", null, 100, null );
@@ -46,6 +59,40 @@ public class Activator extends GenericBundleActivator {
             }
         }
         CMSFilter.addExclude( "/app/exporttoword" );
+        if ( metricsServlet != null ) {
+            CMSFilter.addExclude( "/app/exporttowordmetrics" );
+        }
+    }
+
+    /**
+     * Reads the settings of the plugin from exporttoword.properties in the bundle. Framework properties named
+     * after a setting with the prefix "aspose.exporttoword." override it. Empty settings are left out, so the
+     * servlet uses its defaults for them.
+     */
+    private Hashtable<String, String> loadConfiguration ( BundleContext context ) throws IOException {
+        Properties properties = new Properties();
+        InputStream stream = Activator.class.getResourceAsStream( "/" + Constants.PLUGIN_PROPERTIES_FILE );
+        if ( stream != null ) {
+            try {
+                properties.load( stream );
+            } finally {
+                stream.close();
+            }
+        }
+
+        Hashtable<String, String> initParameters = new Hashtable<String, String>();
+        for ( String name : properties.stringPropertyNames() ) {
+            String value = context.getProperty( Constants.PLUGIN_PROPERTY_PREFIX + name );
+            if ( value == null ) {
+                value = properties.getProperty( name );
+            }
+
+            if ( value != null && value.trim().length() > 0 ) {
+                initParameters.put( name, value.trim() );
+            }
+        }
+
+        return initParameters;
     }
 
     public void stop ( BundleContext context ) throws Exception {
@@ -55,7 +102,14 @@ public class Activator extends GenericBundleActivator {
             httpService.unregisterServlet( simpleServlet );
         }
 
+        if ( httpService != null && metricsServlet != null ) {
+            httpService.unregisterServlet( metricsServlet );
+        }
+
         CMSFilter.removeExclude( "/app/exporttoword" );
+        if ( metricsServlet != null ) {
+            CMSFilter.removeExclude( "/app/exporttowordmetrics" );
+        }
     }
 
 }
\ No newline at end of file
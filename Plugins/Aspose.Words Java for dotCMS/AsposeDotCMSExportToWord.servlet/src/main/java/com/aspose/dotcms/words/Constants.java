@@ -18,4 +18,14 @@ public final class Constants {
 
 	public static final String HTML_TO_WORD_CONVERSION_ERROR_MESSAGE = "Failed to save Webpage content in Word Processing Document";
 	public static final String WORD_FILE_NAME = "WebPageContentInWord.docx";
+	public static final String SERVICE_BUSY_MESSAGE = "Too many Webpage exports are in progress, please try again later";
+
+	public static final String PLUGIN_PROPERTIES_FILE = "exporttoword.properties";
+	public static final String PLUGIN_PROPERTY_PREFIX = "aspose.exporttoword.";
+
+	public static final int DEFAULT_CONVERSION_QUEUE_CAPACITY = 16;
+	public static final int DEFAULT_CONVERSION_TIMEOUT_MILLIS = 60000;
+	public static final int DEFAULT_RETRY_AFTER_SECONDS = 10;
+	public static final int DEFAULT_CONVERSION_CACHE_MAX_BYTES = 64 * 1024 * 1024;
+	public static final int DEFAULT_CONVERSION_CACHE_DISK_MAX_BYTES = 256 * 1024 * 1024;
 }
@@ -0,0 +1,325 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 1998-2016 Aspose Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.aspose.dotcms.words;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of converted documents keyed by page URL, bounded by the total size of the documents.
+ * Entries evicted from memory are moved to an optional directory on disk, bounded by its own size, and moved back
+ * to memory when requested again. Each entry on disk is a single file which is written under a temporary name and
+ * then renamed, so a reader sees either the previous or the new entry but never a partly written one.
+ * <p>
+ * Each entry keeps the validators of the page it was converted from, so that the caller can check with the origin
+ * whether the page has changed before reusing the document.
+ */
+public class ConversionCache {
+
+    /**
+     * A converted document and the validators of the page it was converted from.
+     */
+    public static class Entry {
+        private final String eTag;
+        private final String lastModified;
+        private final byte[] contentDigest;
+        private final byte[] docx;
+
+        public Entry ( String eTag, String lastModified, byte[] contentDigest, byte[] docx ) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.contentDigest = contentDigest;
+            this.docx = docx;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public byte[] getContentDigest() {
+            return contentDigest;
+        }
+
+        public byte[] getDocx() {
+            return docx;
+        }
+    }
+
+    private static final String ENTRY_FILE_SUFFIX = ".entry";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final long maxMemoryBytes;
+    private final File diskDirectory;
+    private final long maxDiskBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long memoryBytes;
+    // Names of the entry files on disk and their sizes, least recently written first.
+    private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<String, Long>();
+    private long diskBytes;
+
+    /**
+     * @param maxMemoryBytes the maximum total size of the documents kept in memory
+     * @param diskDirectory  the directory of the disk tier, or null to keep documents in memory only
+     * @param maxDiskBytes   the maximum total size of the files in the directory of the disk tier
+     */
+    public ConversionCache ( long maxMemoryBytes, File diskDirectory, long maxDiskBytes ) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+        if (diskDirectory != null) {
+            diskDirectory.mkdirs();
+            loadDiskEntries();
+        }
+    }
+
+    /**
+     * Returns the cached conversion of the page, or null if the page has not been converted yet.
+     */
+    public Entry get(String pageURL) {
+        synchronized (entries) {
+            Entry entry = entries.get(pageURL);
+            if (entry != null || diskDirectory == null) {
+                return entry;
+            }
+        }
+
+        Entry entry = readFromDisk(pageURL);
+        if (entry != null && entry.getDocx().length <= maxMemoryBytes) {
+            // The entry moves back to memory, its file would only take up space in the disk tier.
+            removeFromDisk(getFileName(pageURL));
+            put(pageURL, entry);
+        }
+
+        return entry;
+    }
+
+    public void put(String pageURL, Entry entry) {
+        if (entry.getDocx().length > maxMemoryBytes) {
+            writeToDisk(pageURL, entry);
+            return;
+        }
+
+        List<Map.Entry<String, Entry>> evicted = new ArrayList<Map.Entry<String, Entry>>();
+        synchronized (entries) {
+            Entry previous = entries.put(pageURL, entry);
+            if (previous != null) {
+                memoryBytes -= previous.getDocx().length;
+            }
+
+            memoryBytes += entry.getDocx().length;
+            for (Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator(); memoryBytes > maxMemoryBytes && iterator.hasNext(); ) {
+                Map.Entry<String, Entry> eldest = iterator.next();
+                memoryBytes -= eldest.getValue().getDocx().length;
+                evicted.add(eldest);
+                iterator.remove();
+            }
+        }
+
+        // Disk writes happen outside of the lock so that lookups of other pages are not blocked.
+        for (Map.Entry<String, Entry> eldest : evicted) {
+            writeToDisk(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getMemoryBytes() {
+        synchronized (entries) {
+            return memoryBytes;
+        }
+    }
+
+    public long getDiskBytes() {
+        synchronized (diskEntries) {
+            return diskBytes;
+        }
+    }
+
+    private void writeToDisk(String pageURL, Entry entry) {
+        if (diskDirectory == null) {
+            return;
+        }
+
+        String fileName = getFileName(pageURL);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(fileName, TEMP_FILE_SUFFIX, diskDirectory);
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                stream.writeUTF(pageURL);
+                writeOptionalString(stream, entry.getETag());
+                writeOptionalString(stream, entry.getLastModified());
+                stream.writeInt(entry.getContentDigest().length);
+                stream.write(entry.getContentDigest());
+                stream.writeInt(entry.getDocx().length);
+                stream.write(entry.getDocx());
+            } finally {
+                stream.close();
+            }
+
+            addToDisk(fileName, tempFile);
+        } catch (IOException e) {
+            // The disk tier is best effort, the page is converted again if its document cannot be stored.
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private Entry readFromDisk(String pageURL) {
+        File file = new File(diskDirectory, getFileName(pageURL) + ENTRY_FILE_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            // An open file can still be read after it has been replaced or deleted.
+            DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (!pageURL.equals(stream.readUTF())) {
+                    return null;
+                }
+
+                String eTag = readOptionalString(stream);
+                String lastModified = readOptionalString(stream);
+                byte[] contentDigest = new byte[stream.readInt()];
+                stream.readFully(contentDigest);
+                byte[] docx = new byte[stream.readInt()];
+                stream.readFully(docx);
+                return new Entry(eTag, lastModified, contentDigest, docx);
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Renames the written file to the entry file and evicts the least recently written entries beyond the size
+     * of the disk tier. Renames and deletes are quick, so they are done under the lock to keep the files in the
+     * directory in line with the sizes counted.
+     */
+    private void addToDisk(String fileName, File tempFile) throws IOException {
+        File file = new File(diskDirectory, fileName + ENTRY_FILE_SUFFIX);
+        synchronized (diskEntries) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            addDiskEntry(fileName, file.length());
+        }
+    }
+
+    private void removeFromDisk(String fileName) {
+        synchronized (diskEntries) {
+            Long size = diskEntries.remove(fileName);
+            if (size != null) {
+                diskBytes -= size;
+            }
+            new File(diskDirectory, fileName + ENTRY_FILE_SUFFIX).delete();
+        }
+    }
+
+    /**
+     * Counts the entry files left in the directory by a previous run, so they are bounded as well,
+     * and deletes the files of writes which did not complete.
+     */
+    private void loadDiskEntries() {
+        File[] files = diskDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File file1, File file2) {
+                long lastModified1 = file1.lastModified();
+                long lastModified2 = file2.lastModified();
+                return lastModified1 < lastModified2 ? -1 : (lastModified1 == lastModified2 ? 0 : 1);
+            }
+        });
+
+        synchronized (diskEntries) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(TEMP_FILE_SUFFIX)) {
+                    file.delete();
+                } else if (name.endsWith(ENTRY_FILE_SUFFIX)) {
+                    addDiskEntry(name.substring(0, name.length() - ENTRY_FILE_SUFFIX.length()), file.length());
+                }
+            }
+        }
+    }
+
+    // Called while holding the lock of diskEntries.
+    private void addDiskEntry(String fileName, long size) {
+        Long previous = diskEntries.remove(fileName);
+        if (previous != null) {
+            diskBytes -= previous;
+        }
+
+        diskEntries.put(fileName, size);
+        diskBytes += size;
+        for (Iterator<Map.Entry<String, Long>> iterator = diskEntries.entrySet().iterator(); diskBytes > maxDiskBytes && iterator.hasNext(); ) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            diskBytes -= eldest.getValue();
+            new File(diskDirectory, eldest.getKey() + ENTRY_FILE_SUFFIX).delete();
+            iterator.remove();
+        }
+    }
+
+    private static void writeOptionalString(DataOutputStream stream, String value) throws IOException {
+        stream.writeBoolean(value != null);
+        if (value != null) {
+            stream.writeUTF(value);
+        }
+    }
+
+    private static String readOptionalString(DataInputStream stream) throws IOException {
+        return stream.readBoolean() ? stream.readUTF() : null;
+    }
+
+    private static String getFileName(String pageURL) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(pageURL.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 1998-2016 Aspose Pty Ltd.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.aspose.dotcms.words;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the counters and latencies of Web page conversions.
+ * Latency percentiles are computed over the most recent conversions.
+ */
+public class ConversionMetrics {
+
+    private static final int LATENCY_SAMPLE_SIZE = 1024;
+
+    private final AtomicLong conversions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    // Ring buffer of the latest conversion latencies in nanoseconds.
+    private final long[] latencySamples = new long[LATENCY_SAMPLE_SIZE];
+    private int latencySampleCount;
+    private int nextLatencySample;
+
+    public void recordConversion(long latencyNanos) {
+        conversions.incrementAndGet();
+        synchronized (latencySamples) {
+            latencySamples[nextLatencySample] = latencyNanos;
+            nextLatencySample = (nextLatencySample + 1) % LATENCY_SAMPLE_SIZE;
+            latencySampleCount = Math.min(latencySampleCount + 1, LATENCY_SAMPLE_SIZE);
+        }
+    }
+
+    public void recordRejection() {
+        rejections.incrementAndGet();
+    }
+
+    public void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    public void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    public void recordBytesSent(long bytes) {
+        bytesSent.addAndGet(bytes);
+    }
+
+    public void recordCacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    public void recordCacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+
+    /**
+     * Returns the latency percentiles in milliseconds for each of the requested percentiles (0 to 100).
+     */
+    public double[] getLatencyPercentilesMillis(double... percentiles) {
+        long[] samples;
+        synchronized (latencySamples) {
+            samples = Arrays.copyOf(latencySamples, latencySampleCount);
+        }
+
+        Arrays.sort(samples);
+        double[] result = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            if (samples.length == 0) {
+                continue;
+            }
+
+            int index = (int) Math.ceil(percentiles[i] / 100 * samples.length) - 1;
+            result[i] = samples[Math.max(0, Math.min(index, samples.length - 1))] / 1000000.0;
+        }
+
+        return result;
+    }
+
+    /**
+     * Formats the metrics as plain text, one "name value" pair per line.
+     */
+    public String format(int queueDepth, int activeConversions) {
+        double[] latencies = getLatencyPercentilesMillis(50, 90, 99);
+
+        StringBuilder report = new StringBuilder();
+        report.append("queue_depth ").append(queueDepth).append('\n');
+        report.append("active_conversions ").append(activeConversions).append('\n');
+        report.append("conversions_total ").append(conversions.get()).append('\n');
+        report.append("rejections_total ").append(rejections.get()).append('\n');
+        report.append("timeouts_total ").append(timeouts.get()).append('\n');
+        report.append("failures_total ").append(failures.get()).append('\n');
+        report.append("bytes_sent_total ").append(bytesSent.get()).append('\n');
+        report.append("cache_hits_total ").append(cacheHits.get()).append('\n');
+        report.append("cache_misses_total ").append(cacheMisses.get()).append('\n');
+        report.append("conversion_latency_ms_p50 ").append(latencies[0]).append('\n');
+        report.append("conversion_latency_ms_p90 ").append(latencies[1]).append('\n');
+        report.append("conversion_latency_ms_p99 ").append(latencies[2]).append('\n');
+        return report.toString();
+    }
+}
@@ -21,34 +21,197 @@ import javax.servlet.http.HttpServletResponse;
 import com.aspose.words.Document;
 import com.aspose.words.SaveFormat;
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ExportToWordServlet extends HttpServlet {
 
     private static final long serialVersionUID = 42L;
 
-    public ExportToWordServlet ( ) {
+    // Buffers which have grown larger than this are dropped after use instead of being kept in the pool,
+    // so the pool holds at most BUFFER_POOL_CAPACITY * MAX_POOLED_BUFFER_SIZE bytes between requests.
+    private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+    private static final int BUFFER_POOL_CAPACITY = 8;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private boolean chunkedTransfer;
+    private final transient BlockingQueue<PooledBuffer> bufferPool = new ArrayBlockingQueue<PooledBuffer>(BUFFER_POOL_CAPACITY);
+    private final ConversionMetrics metrics = new ConversionMetrics();
+    private transient ThreadPoolExecutor conversionExecutor;
+    private transient ConversionCache conversionCache;
+    private long conversionTimeoutMillis;
+    private int retryAfterSeconds;
+
+    /**
+     * Creates the conversion executor and the conversion cache. Their limits can be changed with the servlet init
+     * parameters maxConcurrentConversions, conversionQueueCapacity, conversionTimeoutMillis, retryAfterSeconds,
+     * conversionCacheMaxBytes (0 disables the cache), conversionCacheDirectory and conversionCacheDiskMaxBytes.
+     * <p>
+     * The init parameter chunkedTransfer set to true saves the document straight into the response without a
+     * content length, instead of saving it into a pooled in-memory buffer first and sending it with its length.
+     * The Activator reads the init parameters from the plugin configuration.
+     */
+    public void init() throws ServletException {
+        chunkedTransfer = Boolean.parseBoolean(getInitParameter("chunkedTransfer"));
+        int maxConcurrentConversions = getIntInitParameter("maxConcurrentConversions", Runtime.getRuntime().availableProcessors());
+        int queueCapacity = getIntInitParameter("conversionQueueCapacity", Constants.DEFAULT_CONVERSION_QUEUE_CAPACITY);
+        conversionTimeoutMillis = getIntInitParameter("conversionTimeoutMillis", Constants.DEFAULT_CONVERSION_TIMEOUT_MILLIS);
+        retryAfterSeconds = getIntInitParameter("retryAfterSeconds", Constants.DEFAULT_RETRY_AFTER_SECONDS);
+
+        // Requests beyond the running and queued conversions are rejected right away rather than piling up.
+        conversionExecutor = new ThreadPoolExecutor(maxConcurrentConversions, maxConcurrentConversions,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ExportToWord-conversion-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.AbortPolicy());
+        conversionExecutor.allowCoreThreadTimeOut(true);
+
+        int cacheMaxBytes = getIntInitParameter("conversionCacheMaxBytes", Constants.DEFAULT_CONVERSION_CACHE_MAX_BYTES);
+        String cacheDirectory = getInitParameter("conversionCacheDirectory");
+        int cacheDiskMaxBytes = getIntInitParameter("conversionCacheDiskMaxBytes", Constants.DEFAULT_CONVERSION_CACHE_DISK_MAX_BYTES);
+        if (cacheMaxBytes > 0) {
+            conversionCache = new ConversionCache(cacheMaxBytes, cacheDirectory == null ? null : new File(cacheDirectory), cacheDiskMaxBytes);
+        }
+    }
+
+    public void destroy() {
+        if (conversionExecutor != null) {
+            conversionExecutor.shutdownNow();
+        }
     }
     
     protected void doGet ( HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) throws ServletException, IOException {
         //Get Web page URL
-        String pageURL = getPageURL(httpServletRequest);
-        
+        final String pageURL = getPageURL(httpServletRequest);
+
+        // The conversion runs on the executor and the request thread sends its result. In chunked mode the
+        // document is saved into the response on the executor, so saving is bounded and timed out as well.
+        final ChunkedResponse chunkedResponse = chunkedTransfer ? new ChunkedResponse(httpServletResponse) : null;
+        // Set by whichever comes first, the conversion handing over its result or the request giving up on it.
+        // A result the request has given up on is returned to the pool by the conversion.
+        final AtomicBoolean resultHandedOver = new AtomicBoolean();
+        Future<Object> conversion;
+        try {
+            conversion = conversionExecutor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    if (chunkedResponse != null) {
+                        try {
+                            return convertIntoResponse(pageURL, chunkedResponse);
+                        } finally {
+                            chunkedResponse.finish();
+                        }
+                    }
+
+                    Object result = conversionCache != null ? convertWithCache(pageURL) : convert(pageURL);
+                    if (!resultHandedOver.compareAndSet(false, true)) {
+                        if (result instanceof ByteArrayOutputStream) {
+                            releaseBuffer((ByteArrayOutputStream) result);
+                        }
+                        return null;
+                    }
+
+                    return result;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.recordRejection();
+            sendServiceBusy(httpServletResponse);
+            return;
+        }
+
+		boolean interrupted = false;
 		try {
-			//Save Web page content in Word Processing document
-			String fileName = savePageContentInWordProcessingDocument(pageURL);
-			//Send Document to Client
-	        sendDocumentToClient(fileName, httpServletResponse);
+			Object result;
+			try {
+				result = conversion.get(conversionTimeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				if (abandonConversion(conversion, resultHandedOver, chunkedResponse, httpServletResponse)) {
+					metrics.recordTimeout();
+					return;
+				}
+				result = conversion.get();
+			} catch (InterruptedException e) {
+				interrupted = true;
+				if (abandonConversion(conversion, resultHandedOver, chunkedResponse, httpServletResponse)) {
+					metrics.recordFailure();
+					return;
+				}
+				result = conversion.get();
+			}
+
+			//Send Document to Client without writing it to disk
+			long bytesSent;
+			if (result instanceof Long) {
+				bytesSent = (Long) result;
+			} else if (result instanceof byte[]) {
+				bytesSent = sendBytesToClient((byte[]) result, httpServletResponse);
+			} else {
+				bytesSent = sendBufferToClient((ByteArrayOutputStream) result, httpServletResponse);
+			}
+			metrics.recordBytesSent(bytesSent);
 		} catch (Exception e) {
+			metrics.recordFailure();
 			OutputStream os= httpServletResponse.getOutputStream();
 	        os.write(Constants.HTML_TO_WORD_CONVERSION_ERROR_MESSAGE.getBytes());
 			os.flush();
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
 		}
     }
     
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         doGet(request, response);
     }
+
+    /**
+     * Stops a conversion the request no longer waits for, so that it does not hold a worker for a client which
+     * has already been answered. A queued conversion is dropped and a running one is interrupted.
+     *
+     * @return false if the conversion has handed over its result in the meantime, the result is then sent as usual
+     */
+    private boolean abandonConversion(Future<Object> conversion, AtomicBoolean resultHandedOver,
+                                      ChunkedResponse chunkedResponse, HttpServletResponse response) throws IOException {
+        if (chunkedResponse == null && !resultHandedOver.compareAndSet(false, true)) {
+            return false;
+        }
+
+        conversion.cancel(true);
+        if (chunkedResponse == null || chunkedResponse.abort()) {
+            sendServiceBusy(response);
+        } else {
+            // The document is partly sent. The next write of the conversion fails, and the response
+            // must not be used by the conversion once this request has completed.
+            chunkedResponse.awaitFinish();
+        }
+        return true;
+    }
+
+    /**
+     * Returns a plain text report of the conversion metrics and the current state of the executor.
+     */
+    public String getMetricsReport() {
+        int queueDepth = conversionExecutor == null ? 0 : conversionExecutor.getQueue().size();
+        int activeConversions = conversionExecutor == null ? 0 : conversionExecutor.getActiveCount();
+        StringBuilder report = new StringBuilder(metrics.format(queueDepth, activeConversions));
+        if (conversionCache != null) {
+            report.append("cache_entries ").append(conversionCache.getEntryCount()).append('\n');
+            report.append("cache_memory_bytes ").append(conversionCache.getMemoryBytes()).append('\n');
+            report.append("cache_disk_bytes ").append(conversionCache.getDiskBytes()).append('\n');
+        }
+        return report.toString();
+    }
     
     public String getPageURL(HttpServletRequest httpServletRequest) {
     	String pageURL = null;
@@ -61,14 +224,97 @@ public class ExportToWordServlet extends HttpServlet {
         
         return pageURL;
     }
+
+    public Document loadPageContent(String pageURL) throws Exception {
+        URL url = new URL(pageURL);
+        InputStream stream = new BufferedInputStream(url.openStream());
+        try {
+            // Load the entire document into memory
+            return new Document(stream);
+        } finally {
+            stream.close();
+        }
+    }
     
+    /**
+     * Loads and converts the page into a pooled buffer.
+     */
+    private ByteArrayOutputStream convert(String pageURL) throws Exception {
+        long startTime = System.nanoTime();
+        ByteArrayOutputStream buffer = convertToDocx(loadPageContent(pageURL));
+        metrics.recordConversion(System.nanoTime() - startTime);
+        return buffer;
+    }
+
+    /**
+     * Loads the page and saves the document straight into the response. The container sends it in chunks
+     * as the length is unknown. The conversion time includes sending the document.
+     *
+     * @return the number of bytes sent
+     */
+    private long convertIntoResponse(String pageURL, ChunkedResponse response) throws Exception {
+        long startTime = System.nanoTime();
+        Document doc = loadPageContent(pageURL);
+        response.open();
+        doc.save(response, SaveFormat.DOCX);
+        response.flush();
+        metrics.recordConversion(System.nanoTime() - startTime);
+        return response.getCount();
+    }
+
+    /**
+     * Returns the cached conversion of the page if the page has not changed since it was converted.
+     * The origin is asked with a conditional GET using the validators of the cached page. When it does not
+     * support validators, the downloaded page is compared with the digest of the cached page instead,
+     * which still saves the conversion.
+     *
+     * @return the cached document as a byte array, or a pooled buffer with the document converted now
+     */
+    private Object convertWithCache(String pageURL) throws Exception {
+        ConversionCache.Entry cached = conversionCache.get(pageURL);
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(pageURL).openConnection();
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                connection.setRequestProperty("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        byte[] page;
+        try {
+            if (cached != null && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                metrics.recordCacheHit();
+                return cached.getDocx();
+            }
+
+            page = readFully(connection.getInputStream());
+        } finally {
+            connection.disconnect();
+        }
+
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(page);
+        if (cached != null && Arrays.equals(digest, cached.getContentDigest())) {
+            metrics.recordCacheHit();
+            return cached.getDocx();
+        }
+
+        metrics.recordCacheMiss();
+        long startTime = System.nanoTime();
+        ByteArrayOutputStream buffer = convertToDocx(new Document(new ByteArrayInputStream(page)));
+        metrics.recordConversion(System.nanoTime() - startTime);
+
+        conversionCache.put(pageURL, new ConversionCache.Entry(connection.getHeaderField("ETag"),
+                connection.getHeaderField("Last-Modified"), digest, buffer.toByteArray()));
+        return buffer;
+    }
+
     public String savePageContentInWordProcessingDocument(String pageURL) throws Exception {
     	String fileName = null;
     	
-        URL url = new URL(pageURL);
-        InputStream stream = url.openStream();
-        // Load the entire document into memory
-        Document doc = new Document(stream);
+        Document doc = loadPageContent(pageURL);
         // Save the document DOCX file format
         fileName = Constants.WORD_FILE_NAME;
         File file = new File(fileName);
@@ -76,14 +322,60 @@ public class ExportToWordServlet extends HttpServlet {
         	file.delete();
         }
         doc.save(fileName, SaveFormat.DOCX);
-        stream.close();       
             
         return fileName;
     }
+
+    /**
+     * Saves the document into a buffer from the pool. The buffer must be passed to sendBufferToClient.
+     */
+    public ByteArrayOutputStream convertToDocx(Document doc) throws Exception {
+        PooledBuffer buffer = acquireBuffer();
+        try {
+            doc.save(buffer, SaveFormat.DOCX);
+            return buffer;
+        } catch (Exception e) {
+            releaseBuffer(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the converted document with its length and returns the buffer to the pool.
+     *
+     * @return the number of bytes sent
+     */
+    public long sendBufferToClient(ByteArrayOutputStream buffer, HttpServletResponse response) throws IOException {
+        try {
+            response.setContentType("application/msword");
+            response.addHeader("Content-Disposition", "attachment; filename="+ Constants.WORD_FILE_NAME);
+            response.setContentLength(buffer.size());
+            // Writes the internal array of the buffer without copying it.
+            buffer.writeTo(response.getOutputStream());
+            response.getOutputStream().flush();
+            return buffer.size();
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
     
+    /**
+     * Sends a cached document with its length.
+     *
+     * @return the number of bytes sent
+     */
+    public long sendBytesToClient(byte[] docx, HttpServletResponse response) throws IOException {
+        response.setContentType("application/msword");
+        response.addHeader("Content-Disposition", "attachment; filename="+ Constants.WORD_FILE_NAME);
+        response.setContentLength(docx.length);
+        response.getOutputStream().write(docx);
+        response.getOutputStream().flush();
+        return docx.length;
+    }
+
     public void sendDocumentToClient(String fileName, HttpServletResponse response) throws ServletException, IOException {
     	ServletOutputStream stream = null;
-        BufferedInputStream buf = null;
+        InputStream input = null;
         try {
         	
             stream = response.getOutputStream();
@@ -93,19 +385,175 @@ public class ExportToWordServlet extends HttpServlet {
             response.addHeader("Content-Disposition", "attachment; filename="+ fileName);
             response.setContentLength((int) file.length());
 	        
-            FileInputStream input = new FileInputStream(file);
-	        buf = new BufferedInputStream(input);
+            input = new FileInputStream(file);
+            byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
 	        int readBytes = 0;
-	        while ((readBytes = buf.read()) != -1) {
-	        	stream.write(readBytes);
+	        while ((readBytes = input.read(copyBuffer)) != -1) {
+	        	stream.write(copyBuffer, 0, readBytes);
 	        }
         } catch (IOException ioe) {
         	throw new ServletException(ioe.getMessage());
         } finally {
           if (stream != null)
         	  stream.close();
-          if (buf != null)
-            buf.close();
+          if (input != null)
+            input.close();
+        }
+    }
+
+    private byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream page = new ByteArrayOutputStream(COPY_BUFFER_SIZE);
+        try {
+            byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+            int readBytes;
+            while ((readBytes = input.read(copyBuffer)) != -1) {
+                page.write(copyBuffer, 0, readBytes);
+            }
+        } finally {
+            input.close();
+        }
+
+        return page.toByteArray();
+    }
+
+    private PooledBuffer acquireBuffer() {
+        PooledBuffer buffer = bufferPool.poll();
+        return buffer != null ? buffer : new PooledBuffer(COPY_BUFFER_SIZE);
+    }
+
+    private void releaseBuffer(ByteArrayOutputStream buffer) {
+        // reset() keeps the array, so the capacity rather than the content size decides whether to pool the buffer.
+        if (!(buffer instanceof PooledBuffer) || ((PooledBuffer) buffer).capacity() > MAX_POOLED_BUFFER_SIZE) {
+            return;
+        }
+
+        buffer.reset();
+        bufferPool.offer((PooledBuffer) buffer);
+    }
+
+    private void sendServiceBusy(HttpServletResponse response) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, Constants.SERVICE_BUSY_MESSAGE);
+    }
+
+    private int getIntInitParameter(String name, int defaultValue) throws ServletException {
+        String value = getInitParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ServletException("Invalid value of init parameter " + name + ": " + value);
+        }
+    }
+
+    /**
+     * A buffer which reports the size of its internal array.
+     */
+    private static class PooledBuffer extends ByteArrayOutputStream {
+        public PooledBuffer(int size) {
+            super(size);
+        }
+
+        public int capacity() {
+            return buf.length;
+        }
+    }
+
+    /**
+     * The response a conversion saves the document into in chunked mode. It counts the bytes sent and lets
+     * the request thread abort the conversion on timeout: before the document is opened the request thread
+     * can still answer with 503, afterwards the next write of the conversion fails.
+     */
+    private static class ChunkedResponse extends FilterOutputStream {
+        private static final int LOADING = 0;
+        private static final int SENDING = 1;
+        private static final int ABORTED = 2;
+
+        private final HttpServletResponse response;
+        private final AtomicInteger state = new AtomicInteger(LOADING);
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private long count;
+
+        public ChunkedResponse(HttpServletResponse response) {
+            super(null);
+            this.response = response;
+        }
+
+        /**
+         * Starts sending the document, unless the request thread has given up on the conversion.
+         */
+        public void open() throws IOException {
+            if (!state.compareAndSet(LOADING, SENDING)) {
+                throw new IOException("The conversion was aborted.");
+            }
+
+            response.setContentType("application/msword");
+            response.addHeader("Content-Disposition", "attachment; filename="+ Constants.WORD_FILE_NAME);
+            out = response.getOutputStream();
+        }
+
+        public void write(int b) throws IOException {
+            checkNotAborted();
+            out.write(b);
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkNotAborted();
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Aborts the conversion.
+         *
+         * @return true if nothing has been sent, so the request thread can still write the response
+         */
+        public boolean abort() {
+            return state.getAndSet(ABORTED) == LOADING;
+        }
+
+        /**
+         * Called by the conversion once it no longer writes to the response.
+         */
+        public void finish() {
+            finished.countDown();
+        }
+
+        /**
+         * Waits until the conversion no longer writes to the response.
+         */
+        public void awaitFinish() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void checkNotAborted() throws IOException {
+            if (state.get() == ABORTED) {
+                throw new IOException("The conversion was aborted.");
+            }
         }
     }
 }
\ No newline at end of file
@@ -1,16 +1,21 @@
 package com.books;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
 
+import com.aspose.words.Cell;
 import com.aspose.words.CellVerticalAlignment;
 import com.aspose.words.DocumentBuilder;
 import com.aspose.words.Font;
 import com.aspose.words.HeightRule;
 import com.aspose.words.ParagraphAlignment;
+import com.aspose.words.Row;
+import com.aspose.words.Run;
+import com.aspose.words.Table;
 
 /**
  * 
@@ -18,6 +23,12 @@ import com.aspose.words.ParagraphAlignment;
  *
  */
 public class AsposeAPIHelper {
+	/**
+	 * Names of the book attributes in the order of the table columns.
+	 */
+	private static final String[] BOOK_COLUMNS = { "BookId", "BookName",
+			"AuthorName", "BookCost" };
+
 	/**
 	 * Creates word document from list of book provided from grid. 
 	 * 
@@ -37,61 +48,8 @@ public class AsposeAPIHelper {
 			// document.
 			DocumentBuilder builder = new DocumentBuilder(doc);
 
-			Font font = builder.getFont();
-
-			font.setSize(16);
-
-			font.setColor(java.awt.Color.BLUE);
-
-			font.setName("Arial");
-
-			builder.insertParagraph();
-			// Write a new paragraph in the document with the text
-
-			builder.insertParagraph();
-			builder.writeln("Books List");
-			builder.insertParagraph();
-			// Save the document in DOCX format. The format to save as is
-			// inferred from the extension of the file name.
-			// Aspose.Words supports saving any document in many more formats.
-
-			builder.startTable();
-			builder.insertCell();
-
-			// Set height and define the height rule for the header row.
-			builder.getRowFormat().setHeight(40.0);
-			builder.getRowFormat().setHeightRule(HeightRule.AT_LEAST);
-
-			// Some special features for the header row.
-			builder.getCellFormat()
-					.getShading()
-					.setBackgroundPatternColor(
-							new java.awt.Color(198, 217, 241));
-			builder.getParagraphFormat()
-					.setAlignment(ParagraphAlignment.CENTER);
-			builder.getFont().setSize(16);
-			builder.getFont().setName("Arial");
-			builder.getFont().setBold(true);
-
-			builder.getCellFormat().setWidth(100.0);
-			builder.write("Book Id");
-			builder.insertCell();
-			builder.write("Book Name");
-			builder.insertCell();
-			builder.write("AuthorName");
-			builder.insertCell();
-			builder.write("Book Cost");
-			builder.endRow();
-			// Set features for the other rows and cells.
-			builder.getCellFormat().getShading()
-					.setBackgroundPatternColor(java.awt.Color.WHITE);
-			builder.getCellFormat().setWidth(100.0);
-			builder.getCellFormat().setVerticalAlignment(
-					CellVerticalAlignment.CENTER);
-
-			// Reset height and define a different height rule for table body
-			builder.getRowFormat().setHeight(30.0);
-			builder.getRowFormat().setHeightRule(HeightRule.AUTO);
+			startBooksTable(builder);
+			setBodyRowFormat(builder);
 
 			for (Map book : books) {
 				String bookId = book.get("BookId").toString();
@@ -126,4 +84,148 @@ public class AsposeAPIHelper {
 
 		}
 	}
+
+	/**
+	 * Creates word document from books read one at a time, for exports of
+	 * large grids.
+	 * 
+	 * Unlike createAsposeWordDoc, the body rows are not built with
+	 * DocumentBuilder. A single formatted row is built as a template and
+	 * cloned for every book, so the formatting of each column is set only
+	 * once, and books are read from the iterator while the table is filled
+	 * rather than from a list built beforehand.
+	 * 
+	 * @param  out the current scope OutputStream.
+	 * @param  books iterator over the books as maps containing attributes.
+	 * @param  context the App ServletContext
+	 * @param  saveFormat the format to save the document in, one of
+	 *         {@link com.aspose.words.SaveFormat} values.
+	 * @see    com.aspose.words.Document
+	 */
+	public static void createAsposeWordDoc(ServletOutputStream out,
+			Iterator<Map> books, ServletContext context, int saveFormat)
+			throws Exception {
+
+		try {
+
+			com.aspose.words.Document doc = new com.aspose.words.Document();
+			DocumentBuilder builder = new DocumentBuilder(doc);
+
+			Table table = startBooksTable(builder);
+
+			// Template row: every column is formatted once here and each
+			// cell gets a placeholder run which is replaced for every book.
+			setBodyRowFormat(builder);
+			builder.getFont().setSize(12);
+			builder.getFont().setBold(false);
+			for (int i = 0; i < BOOK_COLUMNS.length; i++) {
+				builder.insertCell();
+				builder.write(BOOK_COLUMNS[i]);
+			}
+			Row templateRow = builder.endRow();
+			builder.endTable();
+			builder.insertParagraph();
+			builder.insertParagraph();
+
+			templateRow.remove();
+
+			while (books.hasNext()) {
+				Map book = books.next();
+				Row row = (Row) templateRow.deepClone(true);
+
+				Cell cell = row.getFirstCell();
+				for (int i = 0; i < BOOK_COLUMNS.length; i++) {
+					Run run = (Run) cell.getFirstParagraph().getFirstChild();
+					run.setText(book.get(BOOK_COLUMNS[i]).toString());
+					cell = cell.getNextCell();
+				}
+
+				table.appendChild(row);
+			}
+
+			// Save the document
+
+			doc.save(out, saveFormat);
+
+		} catch (Exception e) {
+			throw new Exception(
+					"Aspose: Unable to export to ms word format.. some error occured",
+					e);
+
+		}
+	}
+
+	/**
+	 * Writes the title of the books list and starts the table with its
+	 * header row.
+	 * 
+	 * @param  builder the builder positioned where the list is written.
+	 * @return the table, with the builder positioned after the header row.
+	 */
+	private static Table startBooksTable(DocumentBuilder builder)
+			throws Exception {
+		Font font = builder.getFont();
+
+		font.setSize(16);
+
+		font.setColor(java.awt.Color.BLUE);
+
+		font.setName("Arial");
+
+		builder.insertParagraph();
+		// Write a new paragraph in the document with the text
+
+		builder.insertParagraph();
+		builder.writeln("Books List");
+		builder.insertParagraph();
+
+		Table table = builder.startTable();
+		builder.insertCell();
+
+		// Set height and define the height rule for the header row.
+		builder.getRowFormat().setHeight(40.0);
+		builder.getRowFormat().setHeightRule(HeightRule.AT_LEAST);
+
+		// Some special features for the header row.
+		builder.getCellFormat()
+				.getShading()
+				.setBackgroundPatternColor(
+						new java.awt.Color(198, 217, 241));
+		builder.getParagraphFormat()
+				.setAlignment(ParagraphAlignment.CENTER);
+		builder.getFont().setSize(16);
+		builder.getFont().setName("Arial");
+		builder.getFont().setBold(true);
+
+		builder.getCellFormat().setWidth(100.0);
+		builder.write("Book Id");
+		builder.insertCell();
+		builder.write("Book Name");
+		builder.insertCell();
+		builder.write("AuthorName");
+		builder.insertCell();
+		builder.write("Book Cost");
+		builder.endRow();
+
+		return table;
+	}
+
+	/**
+	 * Sets the cell and row formatting of the rows following the header row.
+	 * 
+	 * @param  builder the builder positioned after the header row.
+	 */
+	private static void setBodyRowFormat(DocumentBuilder builder)
+			throws Exception {
+		// Set features for the other rows and cells.
+		builder.getCellFormat().getShading()
+				.setBackgroundPatternColor(java.awt.Color.WHITE);
+		builder.getCellFormat().setWidth(100.0);
+		builder.getCellFormat().setVerticalAlignment(
+				CellVerticalAlignment.CENTER);
+
+		// Reset height and define a different height rule for table body
+		builder.getRowFormat().setHeight(30.0);
+		builder.getRowFormat().setHeightRule(HeightRule.AUTO);
+	}
 }
@@ -93,14 +93,12 @@ public class BookActions extends DispatchAction {
 		response.setContentType("application/msword");
 		response.setHeader("Content-Disposition",
 				"attachment;filename=AsposeExportBooksList.doc");
-		for (Map book : books) {
-			try {
-				AsposeAPIHelper.createAsposeWordDoc(response.getOutputStream(),
-						books, request.getServletContext());
-			} catch (Exception e) {
-				e.printStackTrace();
-
-			}
+		try {
+			AsposeAPIHelper.createAsposeWordDoc(response.getOutputStream(),
+					books.iterator(), request.getServletContext(),
+					com.aspose.words.SaveFormat.DOC);
+		} catch (Exception e) {
+			e.printStackTrace();
 
 		}
 